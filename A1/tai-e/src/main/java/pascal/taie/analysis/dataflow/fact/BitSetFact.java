@@ -0,0 +1,313 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.fact;
+
+import pascal.taie.util.Indexable;
+
+import javax.annotation.Nullable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Represents set-like data-flow facts over densely-indexed elements,
+ * e.g., {@link pascal.taie.ir.exp.Var}s of a method.
+ * The fact is backed by a bit vector of {@code long} words keyed by
+ * {@link Indexable#getIndex()}, so that set operations between two
+ * {@link BitSetFact}s are performed word by word.
+ * <p>
+ * All elements of the fact must come from the given element list,
+ * and the element at position {@code i} of the list must have index {@code i}.
+ *
+ * @param <E> type of elements
+ */
+public class BitSetFact<E extends Indexable> extends SetFact<E> {
+
+    private final Bits<E> bits;
+
+    /**
+     * Constructs an empty fact over given elements.
+     *
+     * @param elements all elements that may be contained in this fact,
+     *                 ordered by their indexes.
+     */
+    public BitSetFact(List<E> elements) {
+        super(() -> new Bits<>(elements));
+        bits = (Bits<E>) set;
+    }
+
+    @Override
+    public boolean contains(E e) {
+        return bits.contains(e);
+    }
+
+    @Override
+    public boolean union(SetFact<E> other) {
+        if (other instanceof BitSetFact<E> that) {
+            long[] words = bits.words, otherWords = that.bits.words;
+            boolean changed = false;
+            for (int i = 0; i < words.length; ++i) {
+                long old = words[i];
+                words[i] |= otherWords[i];
+                changed |= words[i] != old;
+            }
+            return changed;
+        }
+        return super.union(other);
+    }
+
+    @Override
+    public boolean intersect(SetFact<E> other) {
+        if (other instanceof BitSetFact<E> that) {
+            long[] words = bits.words, otherWords = that.bits.words;
+            boolean changed = false;
+            for (int i = 0; i < words.length; ++i) {
+                long old = words[i];
+                words[i] &= otherWords[i];
+                changed |= words[i] != old;
+            }
+            return changed;
+        }
+        return super.intersect(other);
+    }
+
+    @Override
+    public boolean subtract(SetFact<E> other) {
+        if (other instanceof BitSetFact<E> that) {
+            long[] words = bits.words, otherWords = that.bits.words;
+            boolean changed = false;
+            for (int i = 0; i < words.length; ++i) {
+                long old = words[i];
+                words[i] &= ~otherWords[i];
+                changed |= words[i] != old;
+            }
+            return changed;
+        }
+        return super.subtract(other);
+    }
+
+    /**
+     * Sets the content of this fact to {@code gen \u222a (fact - {kill})},
+     * i.e., the result of a gen/kill transfer function that kills at most
+     * one element. This is computed in place, without creating any
+     * intermediate facts.
+     *
+     * @param kill the element to be killed, or {@code null} if none
+     * @return true if this fact changed as a result of the call, otherwise false.
+     */
+    public boolean setToGenKill(BitSetFact<E> gen, BitSetFact<E> fact,
+                                @Nullable E kill) {
+        long[] words = bits.words, genWords = gen.bits.words,
+                factWords = fact.bits.words;
+        int killWord = -1;
+        long killMask = 0L;
+        if (kill != null) {
+            killWord = Bits.wordIndex(kill.getIndex());
+            killMask = 1L << kill.getIndex();
+        }
+        boolean changed = false;
+        for (int i = 0; i < words.length; ++i) {
+            long word = factWords[i];
+            if (i == killWord) {
+                word &= ~killMask;
+            }
+            word |= genWords[i];
+            if (words[i] != word) {
+                words[i] = word;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public void set(SetFact<E> other) {
+        if (other instanceof BitSetFact<E> that) {
+            System.arraycopy(that.bits.words, 0,
+                    bits.words, 0, bits.words.length);
+        } else {
+            super.set(other);
+        }
+    }
+
+    @Override
+    public BitSetFact<E> copy() {
+        BitSetFact<E> copy = new BitSetFact<>(bits.elements);
+        copy.set(this);
+        return copy;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(bits.words, 0L);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof BitSetFact<?> that) {
+            return Arrays.equals(bits.words, that.bits.words);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    /**
+     * {@link java.util.Set} view of the bit vector, which serves as
+     * the backing set of {@link BitSetFact}, so that operations inherited
+     * from {@link SetFact}, and operations between {@link BitSetFact}
+     * and other {@link SetFact}s, work as usual.
+     */
+    private static final class Bits<E extends Indexable> extends AbstractSet<E> {
+
+        private static final int ADDRESS_BITS_PER_WORD = 6;
+
+        private final List<E> elements;
+
+        private final long[] words;
+
+        private Bits(List<E> elements) {
+            this.elements = elements;
+            this.words = new long[wordIndex(elements.size() - 1) + 1];
+        }
+
+        private static int wordIndex(int index) {
+            return index >> ADDRESS_BITS_PER_WORD;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (o instanceof Indexable e) {
+                int index = e.getIndex();
+                return index >= 0 && index < elements.size()
+                        && (words[wordIndex(index)] & (1L << index)) != 0
+                        && elements.get(index).equals(o);
+            }
+            return false;
+        }
+
+        @Override
+        public boolean add(E e) {
+            int index = e.getIndex();
+            int wordIndex = wordIndex(index);
+            long old = words[wordIndex];
+            words[wordIndex] |= (1L << index);
+            return words[wordIndex] != old;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (contains(o)) {
+                int index = ((Indexable) o).getIndex();
+                words[wordIndex(index)] &= ~(1L << index);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void clear() {
+            Arrays.fill(words, 0L);
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (long word : words) {
+                size += Long.bitCount(word);
+            }
+            return size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            for (long word : words) {
+                if (word != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return new Iterator<>() {
+
+                private int next = nextSetBit(0);
+
+                private int last = -1;
+
+                @Override
+                public boolean hasNext() {
+                    return next >= 0;
+                }
+
+                @Override
+                public E next() {
+                    if (next < 0) {
+                        throw new NoSuchElementException();
+                    }
+                    last = next;
+                    next = nextSetBit(next + 1);
+                    return elements.get(last);
+                }
+
+                @Override
+                public void remove() {
+                    if (last < 0) {
+                        throw new IllegalStateException();
+                    }
+                    words[wordIndex(last)] &= ~(1L << last);
+                    last = -1;
+                }
+            };
+        }
+
+        /**
+         * @return index of the first set bit that occurs on or after
+         * given index, or -1 if there is no such bit.
+         */
+        private int nextSetBit(int fromIndex) {
+            int u = wordIndex(fromIndex);
+            if (u >= words.length) {
+                return -1;
+            }
+            long word = words[u] & (-1L << fromIndex);
+            while (true) {
+                if (word != 0) {
+                    return (u << ADDRESS_BITS_PER_WORD)
+                            + Long.numberOfTrailingZeros(word);
+                }
+                if (++u == words.length) {
+                    return -1;
+                }
+                word = words[u];
+            }
+        }
+    }
+}
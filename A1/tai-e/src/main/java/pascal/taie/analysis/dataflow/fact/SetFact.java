@@ -29,6 +29,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Set;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 /**
@@ -48,6 +49,14 @@ public class SetFact<E> {
         this(Collections.emptySet());
     }
 
+    /**
+     * Constructs a new fact backed by the set created by given factory.
+     * This allows subclasses to supply specialized set representations.
+     */
+    protected SetFact(Supplier<? extends Set<E>> setFactory) {
+        set = setFactory.get();
+    }
+
     /**
      * @return true if this set contains the specified element, otherwise false.
      */
@@ -119,6 +128,15 @@ public class SetFact<E> {
         return result;
     }
 
+    /**
+     * Removes all elements of other fact from this fact.
+     *
+     * @return true if this fact changed as a result of the call, otherwise false.
+     */
+    public boolean subtract(SetFact<E> other) {
+        return set.removeAll(other.set);
+    }
+
     /**
      * Sets the content of this set to the same as other set.
      */
@@ -24,8 +24,13 @@ package pascal.taie.analysis.dataflow.solver;
 
 import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
-import pascal.taie.analysis.graph.cfg.CFG;
 
+/**
+ * Round-robin iterative solver, which repeatedly visits all nodes
+ * (in the order given by {@link FlowGraph#getOrder()}) until no fact
+ * changes. As the solver works on {@link FlowGraph}, it handles both
+ * forward and backward analyses.
+ */
 class IterativeSolver<Node, Fact> extends Solver<Node, Fact> {
 
     public IterativeSolver(DataflowAnalysis<Node, Fact> analysis) {
@@ -33,34 +38,20 @@ class IterativeSolver<Node, Fact> extends Solver<Node, Fact> {
     }
 
     @Override
-    protected void doSolveForward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
-        throw new UnsupportedOperationException();
-    }
-
-    @Override
-    protected void doSolveBackward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
-        // TODO - finish me
-        // if any node's in fact changes, then continue the loop
-        boolean changed = true;
-        while(changed) {
+    protected void doSolve(FlowGraph<Node> graph, DataflowResult<Node, Fact> result) {
+        NodeOrder<Node> order = graph.getOrder();
+        int visits = 0;
+        boolean changed;
+        do {
             changed = false;
-            for(Node node : cfg){
-                if(!cfg.isExit(node)){
-                    Fact inFact = result.getInFact(node);
-                    Fact outFact = result.getOutFact(node);
-                    //outFact[node] = \cup_{s a successor of node} inFact[s]
-                    //inFact[node] = use[node] \cup (outFact[node] - def[node])
-                    for(Node s : cfg.getSuccsOf(node)){
-                        analysis.meetInto(result.getInFact(s), outFact);
-                    }
-                    //result.setOutFact(node, outFact);
-                    boolean flag =  analysis.transferNode(node, inFact, outFact);
-                    if(flag) {
-                        changed = true;
-                        //result.setInFact(node, inFact);
-                    }
+            for (int i = 0; i < order.size(); ++i) {
+                Node node = order.getNode(i);
+                if (!graph.isBoundary(node)) {
+                    ++visits;
+                    changed |= visit(graph, result, node);
                 }
             }
-        }
+        } while (changed);
+        result.setNodeVisits(visits);
     }
 }
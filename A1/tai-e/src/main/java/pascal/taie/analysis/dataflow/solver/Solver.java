@@ -25,10 +25,16 @@ package pascal.taie.analysis.dataflow.solver;
 import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
 import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.Edge;
+import pascal.taie.config.ConfigException;
 
 /**
  * Base class for data-flow analysis solver, which provides common
  * functionalities for different solver implementations.
+ * <p>
+ * Solvers are direction-agnostic: they work on a {@link FlowGraph},
+ * i.e., a view of the CFG along the direction of the analysis,
+ * so that forward and backward analyses are solved by the same code.
  *
  * @param <Node> type of CFG nodes
  * @param <Fact> type of data-flow facts
@@ -46,7 +52,25 @@ public abstract class Solver<Node, Fact> {
      */
     public static <Node, Fact> Solver<Node, Fact> makeSolver(
             DataflowAnalysis<Node, Fact> analysis) {
-        return new IterativeSolver<>(analysis);
+        return new WorkListSolver<>(analysis);
+    }
+
+    /**
+     * Static factory method to create a new solver of given name
+     * for given analysis.
+     *
+     * @param name "worklist" or "iterative", or null for the default
+     *             (work-list) solver
+     */
+    public static <Node, Fact> Solver<Node, Fact> makeSolver(
+            DataflowAnalysis<Node, Fact> analysis, String name) {
+        if (name == null || name.equals("worklist")) {
+            return new WorkListSolver<>(analysis);
+        } else if (name.equals("iterative")) {
+            return new IterativeSolver<>(analysis);
+        } else {
+            throw new ConfigException("Unknown data-flow solver: " + name);
+        }
     }
 
     /**
@@ -56,53 +80,54 @@ public abstract class Solver<Node, Fact> {
      * @return the analysis result
      */
     public DataflowResult<Node, Fact> solve(CFG<Node> cfg) {
-        DataflowResult<Node, Fact> result = initialize(cfg);
-        doSolve(cfg, result);
+        FlowGraph<Node> graph = FlowGraph.of(cfg, analysis.isForward());
+        DataflowResult<Node, Fact> result = initialize(graph);
+        doSolve(graph, result);
         return result;
     }
 
     /**
-     * Creates and initializes a new data-flow result for given CFG.
+     * Creates and initializes a new data-flow result for given flow graph.
+     * The fact flowing out of the boundary node is the boundary fact,
+     * and all other facts are initial facts.
      *
      * @return the initialized data-flow result
      */
-    private DataflowResult<Node, Fact> initialize(CFG<Node> cfg) {
+    private DataflowResult<Node, Fact> initialize(FlowGraph<Node> graph) {
         DataflowResult<Node, Fact> result = new DataflowResult<>();
-        if (analysis.isForward()) {
-            initializeForward(cfg, result);
-        } else {
-            initializeBackward(cfg, result);
+        CFG<Node> cfg = graph.getCFG();
+        for (Node node : cfg) {
+            graph.setInFact(result, node, analysis.newInitialFact());
+            graph.setOutFact(result, node, graph.isBoundary(node) ?
+                    analysis.newBoundaryFact(cfg) : analysis.newInitialFact());
         }
         return result;
     }
 
-    protected void initializeForward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
-        throw new UnsupportedOperationException();
-    }
-
-    protected void initializeBackward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
-        // TODO - finish me
-        result.setInFact(cfg.getExit(), analysis.newBoundaryFact(cfg));//set the exit node fact as the boundary fact(empty)
-        for (Node node : cfg){
-            if (!cfg.isExit(node)){
-                result.setInFact(node, analysis.newInitialFact());//set the initial fact for non-boundary nodes(empty)
-                result.setOutFact(node, analysis.newInitialFact());//due to function meetInto, the out fact is also set to the initial fact
-            }
-        }
-    }
+    /**
+     * Solves the data-flow problem for given flow graph.
+     */
+    protected abstract void doSolve(FlowGraph<Node> graph,
+                                    DataflowResult<Node, Fact> result);
 
     /**
-     * Solves the data-flow problem for given CFG.
+     * Visits a node, i.e., meets the facts flowing into given node
+     * (applying edge transfer if needed), and then transfers the node.
+     *
+     * @return true if the fact flowing out of the node changed,
+     * otherwise false.
      */
-    private void doSolve(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
-        if (analysis.isForward()) {
-            doSolveForward(cfg, result);
-        } else {
-            doSolveBackward(cfg, result);
+    protected boolean visit(FlowGraph<Node> graph,
+                            DataflowResult<Node, Fact> result, Node node) {
+        Fact in = graph.getInFact(result, node);
+        for (Edge<Node> edge : graph.getInEdgesOf(node)) {
+            Fact predFact = graph.getOutFact(result, graph.getSourceOf(edge));
+            if (analysis.needTransferEdge(edge)) {
+                predFact = analysis.transferEdge(edge, predFact);
+            }
+            analysis.meetInto(predFact, in);
         }
+        return analysis.transferNode(node,
+                result.getInFact(node), result.getOutFact(node));
     }
-
-    protected abstract void doSolveForward(CFG<Node> cfg, DataflowResult<Node, Fact> result);
-
-    protected abstract void doSolveBackward(CFG<Node> cfg, DataflowResult<Node, Fact> result);
 }
@@ -0,0 +1,66 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.solver;
+
+import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+
+import java.util.BitSet;
+
+/**
+ * Work-list solver which picks the pending node that comes first in
+ * reverse postorder (for forward analyses) or postorder (for backward
+ * analyses), so that the facts of a node are usually computed after
+ * the facts of the nodes they depend on. The work-list is a {@link BitSet}
+ * indexed by the order of nodes, thus a node is never queued twice.
+ * <p>
+ * As the solver works on {@link FlowGraph}, it handles both forward and
+ * backward analyses.
+ */
+class WorkListSolver<Node, Fact> extends Solver<Node, Fact> {
+
+    WorkListSolver(DataflowAnalysis<Node, Fact> analysis) {
+        super(analysis);
+    }
+
+    @Override
+    protected void doSolve(FlowGraph<Node> graph, DataflowResult<Node, Fact> result) {
+        NodeOrder<Node> order = graph.getOrder();
+        BitSet workList = new BitSet(order.size());
+        workList.set(0, order.size());
+        // the boundary fact is never changed
+        workList.clear(order.getNumber(graph.getBoundary()));
+        int visits = 0;
+        for (int i = workList.nextSetBit(0); i >= 0; i = workList.nextSetBit(0)) {
+            workList.clear(i);
+            ++visits;
+            Node node = order.getNode(i);
+            if (visit(graph, result, node)) {
+                for (Node succ : graph.getSuccsOf(node)) {
+                    workList.set(order.getNumber(succ));
+                }
+            }
+        }
+        result.setNodeVisits(visits);
+    }
+}
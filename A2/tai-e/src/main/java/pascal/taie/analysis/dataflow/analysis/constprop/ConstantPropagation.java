@@ -72,9 +72,9 @@ public class ConstantPropagation extends
     public void meetInto(CPFact fact, CPFact target) {
         // TODO - finish me
         //将fact中的变量值与target中的变量值进行meet操作
-        for (Var var: fact.keySet()) {
-            target.update(var, meetValue(fact.get(var), target.get(var)));
-        }
+        // CPFact.meet() applies meetValue() to each variable on the
+        // encoded values directly, without creating Value objects
+        target.meet(fact);
     }
 
     /**
@@ -104,6 +104,7 @@ public class ConstantPropagation extends
         //判断是否拥有合法左值, 包括def的类型Var和Var中的ValueType是否为Int, 如果不是, 本次实验中可以认为是nop空操作. 不需要为这个Stmt做任何分析, 直接将inFact copy给 outFact即可.
         //计算Stmt的右值(通过evaluate()获得), 并更新outFact中的相应Var def(笔者在此并未使用update方法的返回值, 或许可从此处入手优化效率, 但笔者不能保证其正确性)
         //比较outFact是否更新返回布尔值.
+        // copy() takes constant time as CPFact shares its persistent trie
         CPFact oldOut = out.copy();
         out.copyFrom(in);
         if(stmt instanceof DefinitionStmt def_stmt) {
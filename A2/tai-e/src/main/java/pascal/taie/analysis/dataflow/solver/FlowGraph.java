@@ -0,0 +1,212 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.solver;
+
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.Edge;
+
+import java.util.Set;
+
+/**
+ * View of a CFG along the direction of a data-flow analysis,
+ * which allows solvers to handle forward and backward analyses
+ * with the same algorithm.
+ * <p>
+ * For forward analyses, the view is the same as the CFG. For backward
+ * analyses, the view flips the CFG: the predecessors (in-edges) of
+ * a node are its successors (out-edges) in the CFG, the boundary node
+ * is the exit of the CFG, and the facts flowing into and out of a node
+ * are its out and in facts in the {@link DataflowResult}, respectively.
+ *
+ * @param <Node> type of CFG nodes
+ */
+abstract class FlowGraph<Node> {
+
+    protected final CFG<Node> cfg;
+
+    private FlowGraph(CFG<Node> cfg) {
+        this.cfg = cfg;
+    }
+
+    /**
+     * @return the view of given CFG along the direction of an analysis.
+     */
+    static <Node> FlowGraph<Node> of(CFG<Node> cfg, boolean isForward) {
+        return isForward ? new Forward<>(cfg) : new Backward<>(cfg);
+    }
+
+    /**
+     * @return the underlying CFG.
+     */
+    CFG<Node> getCFG() {
+        return cfg;
+    }
+
+    /**
+     * @return the boundary node, i.e., the node where the data-flow starts.
+     */
+    abstract Node getBoundary();
+
+    boolean isBoundary(Node node) {
+        return node.equals(getBoundary());
+    }
+
+    /**
+     * @return the edges through which facts flow into given node.
+     */
+    abstract Set<Edge<Node>> getInEdgesOf(Node node);
+
+    /**
+     * @return the node from which facts flow along given edge.
+     */
+    abstract Node getSourceOf(Edge<Node> edge);
+
+    /**
+     * @return the nodes that facts flow to from given node.
+     */
+    abstract Set<Node> getSuccsOf(Node node);
+
+    /**
+     * @return the order in which nodes should preferably be processed.
+     */
+    abstract NodeOrder<Node> getOrder();
+
+    /**
+     * @return the fact flowing into given node.
+     */
+    abstract <Fact> Fact getInFact(DataflowResult<Node, Fact> result, Node node);
+
+    abstract <Fact> void setInFact(DataflowResult<Node, Fact> result, Node node, Fact fact);
+
+    /**
+     * @return the fact flowing out of given node.
+     */
+    abstract <Fact> Fact getOutFact(DataflowResult<Node, Fact> result, Node node);
+
+    abstract <Fact> void setOutFact(DataflowResult<Node, Fact> result, Node node, Fact fact);
+
+    private static class Forward<Node> extends FlowGraph<Node> {
+
+        private Forward(CFG<Node> cfg) {
+            super(cfg);
+        }
+
+        @Override
+        Node getBoundary() {
+            return cfg.getEntry();
+        }
+
+        @Override
+        Set<Edge<Node>> getInEdgesOf(Node node) {
+            return cfg.getInEdgesOf(node);
+        }
+
+        @Override
+        Node getSourceOf(Edge<Node> edge) {
+            return edge.getSource();
+        }
+
+        @Override
+        Set<Node> getSuccsOf(Node node) {
+            return cfg.getSuccsOf(node);
+        }
+
+        @Override
+        NodeOrder<Node> getOrder() {
+            return NodeOrder.reversePostorder(cfg);
+        }
+
+        @Override
+        <Fact> Fact getInFact(DataflowResult<Node, Fact> result, Node node) {
+            return result.getInFact(node);
+        }
+
+        @Override
+        <Fact> void setInFact(DataflowResult<Node, Fact> result, Node node, Fact fact) {
+            result.setInFact(node, fact);
+        }
+
+        @Override
+        <Fact> Fact getOutFact(DataflowResult<Node, Fact> result, Node node) {
+            return result.getOutFact(node);
+        }
+
+        @Override
+        <Fact> void setOutFact(DataflowResult<Node, Fact> result, Node node, Fact fact) {
+            result.setOutFact(node, fact);
+        }
+    }
+
+    private static class Backward<Node> extends FlowGraph<Node> {
+
+        private Backward(CFG<Node> cfg) {
+            super(cfg);
+        }
+
+        @Override
+        Node getBoundary() {
+            return cfg.getExit();
+        }
+
+        @Override
+        Set<Edge<Node>> getInEdgesOf(Node node) {
+            return cfg.getOutEdgesOf(node);
+        }
+
+        @Override
+        Node getSourceOf(Edge<Node> edge) {
+            return edge.getTarget();
+        }
+
+        @Override
+        Set<Node> getSuccsOf(Node node) {
+            return cfg.getPredsOf(node);
+        }
+
+        @Override
+        NodeOrder<Node> getOrder() {
+            return NodeOrder.postorder(cfg);
+        }
+
+        @Override
+        <Fact> Fact getInFact(DataflowResult<Node, Fact> result, Node node) {
+            return result.getOutFact(node);
+        }
+
+        @Override
+        <Fact> void setInFact(DataflowResult<Node, Fact> result, Node node, Fact fact) {
+            result.setOutFact(node, fact);
+        }
+
+        @Override
+        <Fact> Fact getOutFact(DataflowResult<Node, Fact> result, Node node) {
+            return result.getInFact(node);
+        }
+
+        @Override
+        <Fact> void setOutFact(DataflowResult<Node, Fact> result, Node node, Fact fact) {
+            result.setInFact(node, fact);
+        }
+    }
+}
@@ -24,12 +24,19 @@ package pascal.taie.analysis.dataflow.solver;
 
 import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
-import pascal.taie.analysis.graph.cfg.CFG;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.BitSet;
 
+/**
+ * Work-list solver which picks the pending node that comes first in
+ * reverse postorder (for forward analyses) or postorder (for backward
+ * analyses), so that the facts of a node are usually computed after
+ * the facts of the nodes they depend on. The work-list is a {@link BitSet}
+ * indexed by the order of nodes, thus a node is never queued twice.
+ * <p>
+ * As the solver works on {@link FlowGraph}, it handles both forward and
+ * backward analyses.
+ */
 class WorkListSolver<Node, Fact> extends Solver<Node, Fact> {
 
     WorkListSolver(DataflowAnalysis<Node, Fact> analysis) {
@@ -37,29 +44,23 @@ class WorkListSolver<Node, Fact> extends Solver<Node, Fact> {
     }
 
     @Override
-    protected void doSolveForward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
-        // TODO - finish me
-        // worklist algorithm
-        Queue<Node> worklist = new LinkedList<Node>();
-        worklist.addAll(cfg.getNodes());
-        while(!worklist.isEmpty()){
-            Node current = worklist.poll();
-            Fact inFact = result.getInFact(current);
-            Fact outFact = result.getOutFact(current);
-            for(Node pred: cfg.getPredsOf(current)){//in[B] = meet(out[P],P is pred of B)
-                analysis.meetInto(result.getOutFact(pred), inFact);
-            }
-            boolean flag = analysis.transferNode(current, inFact, outFact);
-            if(flag){
-                for(Node succ: cfg.getSuccsOf(current)){
-                    worklist.add(succ);
+    protected void doSolve(FlowGraph<Node> graph, DataflowResult<Node, Fact> result) {
+        NodeOrder<Node> order = graph.getOrder();
+        BitSet workList = new BitSet(order.size());
+        workList.set(0, order.size());
+        // the boundary fact is never changed
+        workList.clear(order.getNumber(graph.getBoundary()));
+        int visits = 0;
+        for (int i = workList.nextSetBit(0); i >= 0; i = workList.nextSetBit(0)) {
+            workList.clear(i);
+            ++visits;
+            Node node = order.getNode(i);
+            if (visit(graph, result, node)) {
+                for (Node succ : graph.getSuccsOf(node)) {
+                    workList.set(order.getNumber(succ));
                 }
             }
         }
-    }
-
-    @Override
-    protected void doSolveBackward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
-        throw new UnsupportedOperationException();
+        result.setNodeVisits(visits);
     }
 }
@@ -1,6 +1,7 @@
 plugins {
     id("java")
     id("application")
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 repositories {
@@ -17,6 +18,13 @@ application {
     mainClass.set("pascal.taie.Assignment")
 }
 
+jmh {
+    // benchmarks in src/jmh load programs from src/test/resources/dataflow
+    jmhVersion.set("1.37")
+    profilers.add("gc")
+    resultFormat.set("JSON")
+}
+
 tasks.compileJava { options.encoding = "UTF-8" }
 tasks.compileTestJava { options.encoding = "UTF-8" }
 
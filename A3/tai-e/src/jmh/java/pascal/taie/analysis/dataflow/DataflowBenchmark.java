@@ -0,0 +1,180 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pascal.taie.Main;
+import pascal.taie.World;
+import pascal.taie.analysis.dataflow.analysis.DeadCodeDetection;
+import pascal.taie.analysis.dataflow.analysis.LiveVariableAnalysis;
+import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.JMethod;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Benchmarks of the intraprocedural data-flow framework on the programs
+ * under src/test/resources/dataflow. Each invocation analyzes all methods
+ * of the program, or a single method if {@link #method} is given, e.g.,
+ * {@code -p method=deadLoop}. The analyses are run via
+ * {@link pascal.taie.analysis.MethodAnalysis#analyze(IR)}, i.e., the same
+ * entry point (and thus the same fact representations) as in Tai-e.
+ * <p>
+ * Besides throughput, the benchmarks report the node visits of the
+ * solver per second, and the allocation rate when run with
+ * {@code -prof gc} (enabled in build.gradle.kts).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DataflowBenchmark {
+
+    private static final String RESOURCES = "src/test/resources/dataflow/";
+
+    /**
+     * Program to analyze, i.e., the main class and its directory
+     * relative to {@link #RESOURCES}.
+     */
+    @Param({
+            "deadcode/ControlFlowUnreachable",
+            "deadcode/DeadAssignment",
+            "deadcode/Loops",
+            "deadcode/UnreachableIfBranch",
+            "deadcode/UnreachableSwitchBranch",
+    })
+    public String program;
+
+    /**
+     * Name of the method to analyze, or "*" for all methods of the program.
+     */
+    @Param("*")
+    public String method;
+
+    private List<CFG<Stmt>> cfgs;
+
+    private LiveVariableAnalysis liveVar;
+
+    private ConstantPropagation constProp;
+
+    private DeadCodeDetection deadCode;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int slash = program.lastIndexOf('/');
+        String classPath = RESOURCES + program.substring(0, slash);
+        String main = program.substring(slash + 1);
+        // run dead code detection once, so that the CFGs and the results
+        // required by dead code detection are stored in the IRs
+        Main.main(new String[]{
+                "-pp", "-cp", classPath, "-m", main,
+                "-a", DeadCodeDetection.ID,
+        });
+        cfgs = World.get().getClassHierarchy()
+                .applicationClasses()
+                .flatMap(c -> c.getDeclaredMethods().stream())
+                .filter(m -> !m.isAbstract() && !m.isNative())
+                .filter(m -> method.equals("*") || m.getName().equals(method))
+                .map(JMethod::getIR)
+                .map(ir -> ir.<CFG<Stmt>>getResult(CFGBuilder.ID))
+                .toList();
+        if (cfgs.isEmpty()) {
+            throw new IllegalArgumentException(
+                    "No method " + method + " in " + program);
+        }
+        liveVar = new LiveVariableAnalysis(
+                new AnalysisConfig(LiveVariableAnalysis.ID));
+        constProp = new ConstantPropagation(
+                new AnalysisConfig(ConstantPropagation.ID));
+        deadCode = new DeadCodeDetection(
+                new AnalysisConfig(DeadCodeDetection.ID, "constprop", "dense"));
+    }
+
+    /**
+     * Node visits of the solvers. As the counter is reported as events,
+     * JMH divides the visits accumulated in an iteration by the time of
+     * the iteration, so that they are comparable with the throughput.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+
+        public long nodeVisits;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodeVisits = 0;
+        }
+    }
+
+    @Benchmark
+    public void liveVariables(Counters counters, Blackhole bh) {
+        counters.nodeVisits += analyze(liveVar::analyze, bh);
+    }
+
+    @Benchmark
+    public void constantPropagation(Counters counters, Blackhole bh) {
+        counters.nodeVisits += analyze(constProp::analyze, bh);
+    }
+
+    @Benchmark
+    public void deadCodeDetection(Blackhole bh) {
+        for (CFG<Stmt> cfg : cfgs) {
+            bh.consume(deadCode.analyze(cfg.getIR()));
+        }
+    }
+
+    private long analyze(Function<IR, DataflowResult<Stmt, ?>> analysis,
+                         Blackhole bh) {
+        long visits = 0;
+        for (CFG<Stmt> cfg : cfgs) {
+            DataflowResult<Stmt, ?> result = analysis.apply(cfg.getIR());
+            visits += result.getNodeVisits();
+            bh.consume(result);
+        }
+        return visits;
+    }
+}
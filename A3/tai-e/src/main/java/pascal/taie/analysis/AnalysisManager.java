@@ -0,0 +1,210 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.World;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.config.ConfigException;
+import pascal.taie.ir.IR;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.Timer;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Creates and executes analyses based on given analysis configurations.
+ * <p>
+ * Method analyses are intra-procedural, thus each method in scope is
+ * analyzed by an individual task. The tasks of all method analyses in
+ * one {@link #execute(List)} run on a shared {@link ForkJoinPool}, whose
+ * size is the largest option "parallelism" of these analyses;
+ * if no such option is positive, the common pool is used.
+ * Each IR is written only by the task that analyzes its method, and
+ * all tasks are joined before the next analysis starts, so later
+ * analyses (and {@link ResultProcessor}, which visits methods in
+ * a fixed order) always see complete results.
+ * <p>
+ * If option "cache" of a {@link CacheableAnalysis} is given, the analysis
+ * is incremental: the results of methods are reused from the on-disk
+ * cache unless their IRs changed, see {@link ResultCache}.
+ */
+public class AnalysisManager {
+
+    private static final Logger logger = LogManager.getLogger(AnalysisManager.class);
+
+    private List<JClass> classScope;
+
+    private List<JMethod> methodScope;
+
+    /**
+     * Options of the analyses executed so far, which are part of
+     * the fingerprints of cached results.
+     */
+    private final StringBuilder options = new StringBuilder();
+
+    /**
+     * The pool running the tasks of method analyses in current execution.
+     */
+    private ForkJoinPool pool;
+
+    public void execute(List<AnalysisConfig> analysisConfigs) {
+        int parallelism = analysisConfigs.stream()
+                .mapToInt(AnalysisManager::getParallelism)
+                .max()
+                .orElse(0);
+        pool = parallelism > 0 ?
+                new ForkJoinPool(parallelism) : ForkJoinPool.commonPool();
+        try {
+            analysisConfigs.forEach(config -> {
+                options.append(config.getId()).append(' ')
+                        .append(config.getOptions()).append('\n');
+                Timer.runAndCount(() -> runAnalysis(config), config.getId());
+            });
+        } finally {
+            if (pool != ForkJoinPool.commonPool()) {
+                pool.shutdown();
+            }
+            pool = null;
+        }
+    }
+
+    private void runAnalysis(AnalysisConfig config) {
+        Object analysis;
+        // Create analysis instance
+        try {
+            Class<?> clazz = Class.forName(config.getAnalysisClass());
+            analysis = clazz.getConstructor(AnalysisConfig.class)
+                    .newInstance(config);
+        } catch (ClassNotFoundException | NoSuchMethodException |
+                 InstantiationException | IllegalAccessException |
+                 InvocationTargetException e) {
+            throw new AnalysisException("Failed to initialize " +
+                    config.getAnalysisClass(), e);
+        }
+        // Run the analysis
+        if (analysis instanceof ProgramAnalysis pa) {
+            runProgramAnalysis(pa);
+        } else if (analysis instanceof ClassAnalysis ca) {
+            runClassAnalysis(ca);
+        } else if (analysis instanceof MethodAnalysis ma) {
+            runMethodAnalysis(ma);
+        } else {
+            logger.warn(analysis.getClass() + " is not an analysis");
+        }
+    }
+
+    private void runProgramAnalysis(ProgramAnalysis analysis) {
+        Object result = analysis.analyze();
+        if (result != null) {
+            World.get().storeResult(analysis.getId(), result);
+        }
+    }
+
+    private void runClassAnalysis(ClassAnalysis analysis) {
+        getClassScope().parallelStream().forEach(c -> {
+            Object result = analysis.analyze(c);
+            if (result != null) {
+                c.storeResult(analysis.getId(), result);
+            }
+        });
+    }
+
+    private List<JClass> getClassScope() {
+        if (classScope == null) {
+            String scope = World.get().getOptions().getScope();
+            classScope = switch (scope) {
+                case "app" -> World.get().getClassHierarchy()
+                        .applicationClasses().toList();
+                case "all" -> World.get().getClassHierarchy()
+                        .allClasses().toList();
+                default -> throw new ConfigException(
+                        "Unexpected scope option: " + scope);
+            };
+            logger.info("{} classes in scope ({}) of class analyses",
+                    classScope.size(), scope);
+        }
+        return classScope;
+    }
+
+    private void runMethodAnalysis(MethodAnalysis analysis) {
+        ResultCache cache = ResultCache.make(analysis, options.toString());
+        List<ForkJoinTask<?>> tasks = getMethodScope()
+                .stream()
+                .<ForkJoinTask<?>>map(m -> pool.submit(() -> {
+                    IR ir = m.getIR();
+                    Object result = cache != null ?
+                            cache.getOrAnalyze(ir) : analysis.analyze(ir);
+                    if (result != null) {
+                        ir.storeResult(analysis.getId(), result);
+                    }
+                }))
+                .toList();
+        tasks.forEach(ForkJoinTask::join);
+        if (cache != null) {
+            cache.report();
+        }
+    }
+
+    /**
+     * @return the value of option "parallelism" of given analysis,
+     * or 0 if the option is absent.
+     */
+    private static int getParallelism(AnalysisConfig config) {
+        Object value = config.getOptions().get("parallelism");
+        if (value == null) {
+            return 0;
+        } else if (value instanceof Integer i) {
+            return i;
+        } else {
+            throw new ConfigException("Invalid parallelism option of "
+                    + config.getId() + ": " + value);
+        }
+    }
+
+    private List<JMethod> getMethodScope() {
+        if (methodScope == null) {
+            String scope = World.get().getOptions().getScope();
+            methodScope = switch (scope) {
+                case "app", "all" -> getClassScope()
+                        .stream()
+                        .map(JClass::getDeclaredMethods)
+                        .flatMap(Collection::stream)
+                        .filter(m -> !m.isAbstract() && !m.isNative())
+                        .toList();
+                default -> throw new ConfigException(
+                        "Unexpected scope option: " + scope);
+            };
+            logger.info("{} methods in scope ({}) of method analyses",
+                    methodScope.size(), scope);
+        }
+        return methodScope;
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis;
+
+import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary file of analysis results, which consists of one encoded result
+ * per method and analysis, followed by an index of the results:
+ * <pre>
+ * magic, version
+ * result*
+ * count, (method signature, analysis ID, offset, length)*
+ * offset of index
+ * </pre>
+ * The file is memory-mapped for reading, and only the index is parsed
+ * when the file is opened, so that the result of a method can be
+ * looked up without loading the results of other methods.
+ * A file is limited to 2GB, i.e., the size of a single mapping.
+ */
+public class BinaryResults {
+
+    private static final int MAGIC = 0x54414952; // "TAIR"
+
+    private static final int VERSION = 1;
+
+    private final MappedByteBuffer buffer;
+
+    /**
+     * Maps keys of results to their positions in the file.
+     */
+    private final Map<String, Entry> index;
+
+    /**
+     * Position of the encoded result of a method and an analysis.
+     */
+    private record Entry(String method, String analysis, int offset, int length) {
+    }
+
+    private BinaryResults(MappedByteBuffer buffer, Map<String, Entry> index) {
+        this.buffer = buffer;
+        this.index = index;
+    }
+
+    /**
+     * Opens a binary result file which was written by {@link Writer}.
+     */
+    public static BinaryResults open(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.limit() < Integer.BYTES * 3 ||
+                buffer.getInt(0) != MAGIC) {
+            throw new IOException(path + " is not a binary result file");
+        }
+        if (buffer.getInt(Integer.BYTES) != VERSION) {
+            throw new IOException("Unsupported version of " + path);
+        }
+        int indexEnd = buffer.limit() - Integer.BYTES;
+        int indexOffset = buffer.getInt(indexEnd);
+        DataInput in = asDataInput(
+                buffer.slice(indexOffset, indexEnd - indexOffset));
+        Map<String, Entry> index = new HashMap<>();
+        for (int i = in.readInt(); i > 0; --i) {
+            Entry entry = new Entry(in.readUTF(), in.readUTF(),
+                    in.readInt(), in.readInt());
+            index.put(getKey(entry.method(), entry.analysis()), entry);
+        }
+        return new BinaryResults(buffer, index);
+    }
+
+    /**
+     * @return the number of results in this file.
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * @return the encoded result of given method and analysis,
+     * or null if the file does not contain such result.
+     */
+    @Nullable
+    public ByteBuffer get(String method, String analysis) {
+        Entry entry = index.get(getKey(method, analysis));
+        return entry == null ? null :
+                buffer.slice(entry.offset(), entry.length());
+    }
+
+    /**
+     * @return a {@link DataInput} reading given encoded result.
+     */
+    public static DataInput asDataInput(ByteBuffer result) {
+        ByteBuffer buf = result.duplicate();
+        return new DataInputStream(new InputStream() {
+            @Override
+            public int read() {
+                return buf.hasRemaining() ? buf.get() & 0xff : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (!buf.hasRemaining()) {
+                    return -1;
+                }
+                int n = Math.min(len, buf.remaining());
+                buf.get(b, off, n);
+                return n;
+            }
+        });
+    }
+
+    private static String getKey(String method, String analysis) {
+        return method + ' ' + analysis;
+    }
+
+    /**
+     * Writes encoded results to a binary result file.
+     */
+    public static class Writer implements AutoCloseable {
+
+        private final DataOutputStream out;
+
+        private final List<Entry> entries = new ArrayList<>();
+
+        public Writer(Path path) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(path)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+
+        /**
+         * Appends the encoded result of given method and analysis.
+         */
+        public void add(String method, String analysis, byte[] result)
+                throws IOException {
+            entries.add(new Entry(method, analysis, out.size(), result.length));
+            out.write(result);
+        }
+
+        @Override
+        public void close() throws IOException {
+            int indexOffset = out.size();
+            out.writeInt(entries.size());
+            for (Entry entry : entries) {
+                out.writeUTF(entry.method());
+                out.writeUTF(entry.analysis());
+                out.writeInt(entry.offset());
+                out.writeInt(entry.length());
+            }
+            out.writeInt(indexOffset);
+            out.close();
+        }
+    }
+}
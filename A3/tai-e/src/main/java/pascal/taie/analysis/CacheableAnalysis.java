@@ -0,0 +1,56 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis;
+
+import pascal.taie.ir.IR;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Method analysis whose results can be written to and read from
+ * the on-disk result cache, so that an unchanged method is not
+ * re-analyzed when its IR has the same fingerprint as in a previous run.
+ * The cache is enabled by option "cache" of the analysis, i.e.,
+ * the directory of the cache.
+ * <p>
+ * Elements of the IR, e.g., variables and statements, should be encoded
+ * by their indexes, which are stable as long as the IR is unchanged.
+ *
+ * @param <R> type of the analysis results
+ * @see ResultCache
+ */
+public interface CacheableAnalysis<R> {
+
+    /**
+     * Writes the result of this analysis on given IR.
+     */
+    void writeResult(IR ir, R result, DataOutput out) throws IOException;
+
+    /**
+     * Reads the result of this analysis on given IR,
+     * which was written by {@link #writeResult(IR, Object, DataOutput)}.
+     */
+    R readResult(IR ir, DataInput in) throws IOException;
+}
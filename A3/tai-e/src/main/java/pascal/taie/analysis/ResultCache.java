@@ -0,0 +1,226 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.Stmt;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * On-disk cache of the results of a {@link CacheableAnalysis},
+ * which enables incremental analysis: the result of a method is reused
+ * if the fingerprint of its IR is the same as when the result was cached,
+ * and only the methods whose IRs changed are re-analyzed.
+ * <p>
+ * The fingerprint is a digest of the method signature, the variables,
+ * the statements and the exception entries of the IR, and the options of
+ * this analysis and of the analyses before it in the plan (as the results
+ * may depend on the results of those analyses). Line numbers are not
+ * included, thus moving a method in its source file keeps its result.
+ * <p>
+ * The result of each method is kept in an individual file, and the
+ * files are only accessed by the task which analyzes the method,
+ * thus the cache can be used by parallel method analyses.
+ */
+class ResultCache {
+
+    private static final Logger logger = LogManager.getLogger(ResultCache.class);
+
+    /**
+     * Version of the format of cache files, which should be increased
+     * when the format or the encoding of any result changes.
+     */
+    private static final int VERSION = 1;
+
+    private static final String DIGEST = "SHA-256";
+
+    private final MethodAnalysis analysis;
+
+    private final CacheableAnalysis<Object> codec;
+
+    private final Path dir;
+
+    /**
+     * Options of the analysis and the analyses before it in the plan.
+     */
+    private final String options;
+
+    private final AtomicInteger hits = new AtomicInteger();
+
+    private final AtomicInteger misses = new AtomicInteger();
+
+    @SuppressWarnings("unchecked")
+    private ResultCache(MethodAnalysis analysis, Path dir, String options) {
+        this.analysis = analysis;
+        this.codec = (CacheableAnalysis<Object>) analysis;
+        this.dir = dir;
+        this.options = options;
+    }
+
+    /**
+     * @param options options of given analysis and the analyses
+     *                before it in the plan.
+     * @return the result cache of given analysis, or null if the analysis
+     * does not enable the cache (or its results cannot be cached).
+     */
+    @Nullable
+    static ResultCache make(MethodAnalysis analysis, String options) {
+        String cache = analysis.getOptions().getString("cache");
+        if (cache == null) {
+            return null;
+        }
+        if (!(analysis instanceof CacheableAnalysis<?>)) {
+            logger.warn("Results of {} cannot be cached", analysis.getId());
+            return null;
+        }
+        Path dir = Path.of(cache, analysis.getId());
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create result cache " + dir, e);
+        }
+        return new ResultCache(analysis, dir, options);
+    }
+
+    /**
+     * @return the cached result of given IR if the IR is unchanged;
+     * otherwise, analyzes the IR and caches the result.
+     */
+    Object getOrAnalyze(IR ir) {
+        byte[] fingerprint = fingerprint(ir);
+        Path file = dir.resolve(toHex(digest(ir.getMethod().toString())));
+        Object result = load(ir, file, fingerprint);
+        if (result != null) {
+            hits.incrementAndGet();
+            return result;
+        }
+        misses.incrementAndGet();
+        result = analysis.analyze(ir);
+        if (result != null) {
+            store(ir, file, fingerprint, result);
+        }
+        return result;
+    }
+
+    /**
+     * Logs the number of methods whose results are reused from the cache.
+     */
+    void report() {
+        logger.info("{}: reused cached results of {} methods, analyzed {} methods",
+                analysis.getId(), hits.get(), misses.get());
+    }
+
+    @Nullable
+    private Object load(IR ir, Path file, byte[] fingerprint) {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != VERSION) {
+                return null;
+            }
+            byte[] cached = new byte[in.readInt()];
+            in.readFully(cached);
+            if (!Arrays.equals(cached, fingerprint)) {
+                return null;
+            }
+            return codec.readResult(ir, in);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            // corrupted cache file is treated as absent
+            logger.debug("Failed to read cached result from {}: {}", file, e);
+            return null;
+        }
+    }
+
+    private void store(IR ir, Path file, byte[] fingerprint, Object result) {
+        // write to a temporary file first, so that readers never see
+        // a partially-written cache file
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(VERSION);
+                out.writeInt(fingerprint.length);
+                out.write(fingerprint);
+                codec.writeResult(ir, result, out);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to cache result of {}: {}", ir.getMethod(), e);
+        }
+    }
+
+    private byte[] fingerprint(IR ir) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(options).append('\n');
+        sb.append(ir.getMethod()).append('\n');
+        for (Var var : ir.getVars()) {
+            sb.append(var.getIndex()).append(' ')
+                    .append(var.getType()).append(' ')
+                    .append(var.getName()).append('\n');
+        }
+        for (Stmt stmt : ir.getStmts()) {
+            sb.append(stmt.getIndex()).append(' ')
+                    .append(stmt).append('\n');
+        }
+        ir.getExceptionEntries().forEach(entry ->
+                sb.append(entry.start().getIndex()).append(' ')
+                        .append(entry.end().getIndex()).append(' ')
+                        .append(entry.handler().getIndex()).append(' ')
+                        .append(entry.catchType()).append('\n'));
+        return digest(sb.toString());
+    }
+
+    private static byte[] digest(String s) {
+        try {
+            return MessageDigest.getInstance(DIGEST)
+                    .digest(s.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        return HexFormat.of().formatHex(bytes);
+    }
+}
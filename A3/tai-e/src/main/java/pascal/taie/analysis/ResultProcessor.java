@@ -22,32 +22,49 @@
 
 package pascal.taie.analysis;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import pascal.taie.World;
+import pascal.taie.analysis.dataflow.analysis.LiveVariableAnalysis;
+import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
+import pascal.taie.analysis.dataflow.analysis.constprop.SparseConstantPropagation;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.fact.FactCodec;
+import pascal.taie.analysis.dataflow.solver.SolverMetrics;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
 import pascal.taie.config.AnalysisConfig;
 import pascal.taie.ir.IR;
 import pascal.taie.ir.IRPrinter;
 import pascal.taie.ir.stmt.Stmt;
 import pascal.taie.language.classes.JClass;
 import pascal.taie.language.classes.JMethod;
-import pascal.taie.util.collection.Maps;
-import pascal.taie.util.collection.MultiMap;
 import pascal.taie.util.collection.Pair;
+import pascal.taie.util.collection.Sets;
 
+import javax.annotation.Nullable;
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -59,6 +76,18 @@ import static pascal.taie.util.collection.CollectionUtils.getOne;
  * This class is designed mainly for testing purpose. Currently, it supports
  * input/output analysis results from/to file, and compare analysis results
  * with input results. This analysis should be placed after the other analyses.
+ * <p>
+ * Comparison streams the input file: the expected results are read
+ * method by method, and compared with the analysis results in parallel,
+ * so that only the expected results of a bounded number of methods are
+ * kept in memory. Mismatches are reported (and logged if option
+ * "log-mismatches" is enabled) in the order of the input file as soon
+ * as the preceding methods have been compared.
+ * <p>
+ * The results of live variable analysis and constant propagation can also
+ * be dumped to (action "dump-binary") and compared with (action
+ * "compare-binary") a {@link BinaryResults} file, which is much smaller
+ * and faster to compare than the text output.
  */
 public class ResultProcessor extends ProgramAnalysis {
 
@@ -66,14 +95,26 @@ public class ResultProcessor extends ProgramAnalysis {
 
     private static final Logger logger = LogManager.getLogger(ResultProcessor.class);
 
+    /**
+     * Suffix of the file of solver metrics, which is appended to
+     * the path of the output file.
+     */
+    private static final String METRICS_SUFFIX = ".metrics.json";
+
+    private static final String METRICS_FILE = "solver-metrics.json";
+
     private final String action;
 
     private PrintStream out;
 
-    private MultiMap<Pair<String, String>, String> inputs;
-
     private Set<String> mismatches;
 
+    private boolean logMismatches;
+
+    private BinaryResults.Writer binaryOut;
+
+    private BinaryResults baseline;
+
     public ResultProcessor(AnalysisConfig config) {
         super(config);
         action = getOptions().getString("action");
@@ -84,9 +125,11 @@ public class ResultProcessor extends ProgramAnalysis {
         // initialization
         switch (action) {
             case "dump" -> setOutput();
-            case "compare" -> readInputs();
+            case "dump-binary" -> setBinaryOutput();
+            case "compare-binary" -> readBaseline();
         }
         mismatches = new LinkedHashSet<>();
+        logMismatches = getOptions().getBoolean("log-mismatches");
         // Classify given analysis IDs into two groups, one for inter-procedural
         // and the another one for intra-procedural analysis.
         // If an ID has result in World, then it is classified as
@@ -97,9 +140,14 @@ public class ResultProcessor extends ProgramAnalysis {
                 .collect(Collectors.groupingBy(id -> World.get().getResult(id) != null));
         if (groups.containsKey(false)) {
             processIntraResults(groups.get(false));
+            exportMetrics(groups.get(false));
         }
-        if (getOptions().getBoolean("log-mismatches")) {
-            mismatches.forEach(logger::info);
+        if (binaryOut != null) {
+            try {
+                binaryOut.close();
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to write binary results", e);
+            }
         }
         return mismatches;
     }
@@ -117,22 +165,19 @@ public class ResultProcessor extends ProgramAnalysis {
         }
     }
 
-    private void readInputs() {
-        String input = getOptions().getString("file");
-        Path path = Path.of(input);
+    private void setBinaryOutput() {
+        Path path = Path.of(getOptions().getString("file"));
         try {
-            inputs = Maps.newMultiMap();
-            BufferedReader reader = Files.newBufferedReader(path);
-            String line;
-            Pair<String, String> currentKey = null;
-            while ((line = reader.readLine()) != null) {
-                Pair<String, String> key = extractKey(line);
-                if (key != null) {
-                    currentKey = key;
-                } else if (!line.isBlank()) {
-                    inputs.put(currentKey, line);
-                }
-            }
+            binaryOut = new BinaryResults.Writer(path);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open output file", e);
+        }
+    }
+
+    private void readBaseline() {
+        Path path = Path.of(getOptions().getString("file"));
+        try {
+            baseline = BinaryResults.open(path);
         } catch (IOException e) {
             throw new RuntimeException("Failed to read input file", e);
         }
@@ -153,7 +198,11 @@ public class ResultProcessor extends ProgramAnalysis {
     }
 
     private void processIntraResults(List<String> analyses) {
-        Stream<JMethod> methods = World.get()
+        processResults(getMethods(), analyses, (m, id) -> m.getIR().getResult(id));
+    }
+
+    private static Stream<JMethod> getMethods() {
+        return World.get()
                 .getClassHierarchy()
                 .applicationClasses()
                 .map(JClass::getDeclaredMethods)
@@ -161,16 +210,58 @@ public class ResultProcessor extends ProgramAnalysis {
                 .filter(m -> !m.isAbstract() && !m.isNative())
                 .sorted(Comparator.comparing(m ->
                         m.getIR().getStmt(0).getLineNumber()));
-        processResults(methods, analyses, (m, id) -> m.getIR().getResult(id));
+    }
+
+    /**
+     * Exports the solver metrics of given analyses (recorded when option
+     * "metrics" of the analyses is enabled) as JSON, which maps each
+     * analysis to the metrics of every method. The metrics are written
+     * next to the output file, or to {@link #METRICS_FILE} if there is
+     * no output file.
+     */
+    private void exportMetrics(List<String> analyses) {
+        Map<String, Map<String, SolverMetrics>> metrics = new LinkedHashMap<>();
+        analyses.forEach(id -> {
+            String key = SolverMetrics.getKey(id);
+            Map<String, SolverMetrics> methodMetrics = new LinkedHashMap<>();
+            getMethods().forEach(m -> {
+                SolverMetrics solverMetrics = m.getIR().getResult(key);
+                if (solverMetrics != null) {
+                    methodMetrics.put(m.toString(), solverMetrics);
+                }
+            });
+            if (!methodMetrics.isEmpty()) {
+                metrics.put(id, methodMetrics);
+            }
+        });
+        if (metrics.isEmpty()) {
+            return;
+        }
+        String output = getOptions().getString("file");
+        Path path = action.equals("dump") && output != null ?
+                Path.of(output + METRICS_SUFFIX) : Path.of(METRICS_FILE);
+        try {
+            new ObjectMapper()
+                    .writerWithDefaultPrettyPrinter()
+                    .writeValue(path.toFile(), metrics);
+            logger.info("Solver metrics are written to {}", path);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write solver metrics", e);
+        }
     }
 
     private void processResults(Stream<JMethod> methods, List<String> analyses,
                                 BiFunction<JMethod, String, ?> resultGetter) {
+        if (action.equals("compare")) {
+            compareResults(methods, analyses, resultGetter);
+            return;
+        }
         methods.forEach(method ->
                 analyses.forEach(id -> {
                     switch (action) {
                         case "dump" -> dumpResult(method, id, resultGetter);
-                        case "compare" -> compareResult(method, id, resultGetter);
+                        case "dump-binary" -> dumpBinaryResult(method, id, resultGetter);
+                        case "compare-binary" -> compareBinaryResult(method, id, resultGetter);
                     }
                 })
         );
@@ -211,10 +302,97 @@ public class ResultProcessor extends ProgramAnalysis {
         return toString(stmt) + " " + toString(result.getResult(stmt));
     }
 
-    private void compareResult(JMethod method, String id,
-                               BiFunction<JMethod, String, ?> resultGetter) {
-        Set<String> inputResult = inputs.get(new Pair<>(method.toString(), id));
-        Object result = resultGetter.apply(method, id);
+    /**
+     * Compares the results of given methods and analyses with the expected
+     * results in the input file. Each section of the file, i.e., the expected
+     * result of a method and an analysis, is compared by an individual task,
+     * and at most {@link #getCompareWindow()} sections are pending at a time.
+     * The results which have no section in the file are compared with
+     * empty expected results after the file is read.
+     */
+    private void compareResults(Stream<JMethod> methods, List<String> analyses,
+                                BiFunction<JMethod, String, ?> resultGetter) {
+        Map<String, JMethod> methodMap = new LinkedHashMap<>();
+        methods.forEach(m -> methodMap.putIfAbsent(m.toString(), m));
+        Set<Pair<String, String>> compared = Sets.newSet();
+        Queue<ForkJoinTask<Set<String>>> pending = new ArrayDeque<>();
+        int window = getCompareWindow();
+        Path path = Path.of(getOptions().getString("file"));
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String header = reader.readLine();
+            while (header != null) {
+                Pair<String, String> key = extractKey(header);
+                Set<String> lines = new LinkedHashSet<>();
+                String line;
+                while ((line = reader.readLine()) != null && extractKey(line) == null) {
+                    if (!line.isBlank()) {
+                        lines.add(line);
+                    }
+                }
+                header = line;
+                JMethod method = key == null ? null : methodMap.get(key.first());
+                if (method != null && analyses.contains(key.second())
+                        && compared.add(key)) {
+                    pending.add(submitCompare(method, key.second(), lines, resultGetter));
+                    if (pending.size() > window) {
+                        report(pending.poll().join());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read input file", e);
+        }
+        methodMap.forEach((signature, method) -> analyses.forEach(id -> {
+            if (!compared.contains(new Pair<>(signature, id))) {
+                pending.add(submitCompare(method, id, Set.of(), resultGetter));
+                if (pending.size() > window) {
+                    report(pending.poll().join());
+                }
+            }
+        }));
+        pending.forEach(task -> report(task.join()));
+    }
+
+    /**
+     * @return the maximum number of pending sections during comparison.
+     */
+    private static int getCompareWindow() {
+        return 2 * ForkJoinPool.getCommonPoolParallelism();
+    }
+
+    private static ForkJoinTask<Set<String>> submitCompare(
+            JMethod method, String id, Set<String> inputResult,
+            BiFunction<JMethod, String, ?> resultGetter) {
+        return ForkJoinPool.commonPool().submit(() -> {
+            Set<String> found = new LinkedHashSet<>();
+            compareResult(method, id, inputResult,
+                    resultGetter.apply(method, id), found);
+            return found;
+        });
+    }
+
+    /**
+     * Adds mismatches to the result of this analysis, and logs them
+     * if option "log-mismatches" is enabled.
+     */
+    private void report(Set<String> found) {
+        found.forEach(this::report);
+    }
+
+    private void report(String mismatch) {
+        if (mismatches.add(mismatch) && logMismatches) {
+            logger.info(mismatch);
+        }
+    }
+
+    /**
+     * Compares a result with the expected result, and adds mismatches
+     * to given set. This method is called by parallel compare tasks,
+     * thus it only writes the given set.
+     */
+    private static void compareResult(JMethod method, String id,
+                                      Set<String> inputResult, Object result,
+                                      Set<String> mismatches) {
         if (result instanceof Set) {
             Set<String> given = ((Set<?>) result)
                     .stream()
@@ -233,12 +411,20 @@ public class ResultProcessor extends ProgramAnalysis {
                 }
             });
         } else if (result instanceof StmtResult<?> StmtResult) {
-            Set<String> lines = inputs.get(new Pair<>(method.toString(), id));
+            // group expected lines by statement prefix, e.g., "[0@L1]",
+            // so that each statement is only checked against its lines
+            Map<String, List<String>> lines = inputResult.stream()
+                    .collect(Collectors.groupingBy(ResultProcessor::getStmtPrefix,
+                            LinkedHashMap::new, Collectors.toList()));
             IR ir = method.getIR();
             ir.forEach(stmt -> {
                 String stmtStr = toString(stmt);
+                List<String> stmtLines = lines.get(getStmtPrefix(stmtStr));
+                if (stmtLines == null) {
+                    return;
+                }
                 String given = toString(stmt, StmtResult);
-                for (String line : lines) {
+                for (String line : stmtLines) {
                     if (line.startsWith(stmtStr) && !line.equals(given)) {
                         int idx = stmtStr.length();
                         mismatches.add(String.format("%s %s expected: %s, given: %s",
@@ -258,4 +444,102 @@ public class ResultProcessor extends ProgramAnalysis {
                     id, method, inputResult, result);
         }
     }
+
+    /**
+     * @return the prefix of the string representation of a statement
+     * (given by {@link IRPrinter}), i.e., its index and line number.
+     */
+    private static String getStmtPrefix(String s) {
+        return s.substring(0, s.indexOf(']') + 1);
+    }
+
+    /**
+     * @return the codec of the facts of given analysis,
+     * or null if the results of the analysis cannot be written in binary.
+     */
+    @Nullable
+    private static FactCodec<?> getCodec(String id) {
+        return switch (id) {
+            case LiveVariableAnalysis.ID -> LiveVariableAnalysis.CODEC;
+            case ConstantPropagation.ID, SparseConstantPropagation.ID ->
+                    ConstantPropagation.CODEC;
+            default -> null;
+        };
+    }
+
+    /**
+     * @return the encoded result, or null if the result of given analysis
+     * cannot be written in binary.
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    private static byte[] encode(JMethod method, String id, Object result) {
+        FactCodec<Object> codec = (FactCodec<Object>) getCodec(id);
+        if (codec == null || !(result instanceof DataflowResult<?, ?>)) {
+            logger.warn("Cannot process binary result of analysis {} for {}",
+                    id, method);
+            return null;
+        }
+        CFG<Stmt> cfg = method.getIR().getResult(CFGBuilder.ID);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            codec.writeResult(cfg, (DataflowResult<Stmt, Object>) result, out);
+        } catch (IOException e) {
+            throw new RuntimeException(e); // unreachable for byte arrays
+        }
+        return bytes.toByteArray();
+    }
+
+    private void dumpBinaryResult(JMethod method, String id,
+                                  BiFunction<JMethod, String, ?> resultGetter) {
+        byte[] result = encode(method, id, resultGetter.apply(method, id));
+        if (result != null) {
+            try {
+                binaryOut.add(method.toString(), id, result);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to write binary results", e);
+            }
+        }
+    }
+
+    /**
+     * Compares the encoded result with the baseline byte by byte,
+     * and only decodes the baseline to report the mismatched statements
+     * if they differ.
+     */
+    private void compareBinaryResult(JMethod method, String id,
+                                     BiFunction<JMethod, String, ?> resultGetter) {
+        Object result = resultGetter.apply(method, id);
+        byte[] given = encode(method, id, result);
+        if (given == null) {
+            return;
+        }
+        ByteBuffer expected = baseline.get(method.toString(), id);
+        if (expected == null) {
+            report(String.format("%s (%s) is absent in baseline",
+                    method, id));
+        } else if (!expected.equals(ByteBuffer.wrap(given))) {
+            StmtResult<?> expectedResult;
+            try {
+                expectedResult = getCodec(id).readResult(
+                        method.getIR().getResult(CFGBuilder.ID),
+                        BinaryResults.asDataInput(expected));
+            } catch (IOException e) {
+                report(String.format("%s (%s) is corrupted in baseline",
+                        method, id));
+                return;
+            }
+            StmtResult<?> givenResult = (StmtResult<?>) result;
+            method.getIR().forEach(stmt -> {
+                String e = toString(stmt, expectedResult);
+                String g = toString(stmt, givenResult);
+                if (!e.equals(g)) {
+                    int idx = toString(stmt).length();
+                    report(String.format("%s %s expected: %s, given: %s",
+                            method, toString(stmt), e.substring(idx + 1),
+                            g.substring(idx + 1)));
+                }
+            });
+        }
+    }
 }
@@ -25,27 +25,48 @@ package pascal.taie.analysis.dataflow.analysis;
 import pascal.taie.analysis.MethodAnalysis;
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
 import pascal.taie.analysis.dataflow.solver.Solver;
+import pascal.taie.analysis.dataflow.solver.SolverMetrics;
 import pascal.taie.analysis.graph.cfg.CFG;
 import pascal.taie.analysis.graph.cfg.CFGBuilder;
 import pascal.taie.analysis.graph.cfg.Edge;
 import pascal.taie.config.AnalysisConfig;
 import pascal.taie.ir.IR;
 
+import javax.annotation.Nullable;
+
 public abstract class AbstractDataflowAnalysis<Node, Fact>
         extends MethodAnalysis
         implements DataflowAnalysis<Node, Fact> {
 
     private final Solver<Node, Fact> solver;
 
+    private final boolean metrics;
+
     protected AbstractDataflowAnalysis(AnalysisConfig config) {
         super(config);
         solver = Solver.makeSolver(this);
+        metrics = getOptions().getBooleanOrDefault("metrics", false);
     }
 
     @Override
     public DataflowResult<Node, Fact> analyze(IR ir) {
         CFG<Node> cfg = ir.getResult(CFGBuilder.ID);
-        return solver.solve(cfg);
+        return solver.solve(cfg, getOptions().getBooleanOrDefault("compact", false),
+                newMetrics(ir));
+    }
+
+    /**
+     * @return new solver metrics of this analysis on given IR, which are
+     * stored in the IR, or null if option "metrics" is disabled.
+     */
+    @Nullable
+    protected SolverMetrics newMetrics(IR ir) {
+        if (!metrics) {
+            return null;
+        }
+        SolverMetrics solverMetrics = new SolverMetrics();
+        ir.storeResult(SolverMetrics.getKey(getId()), solverMetrics);
+        return solverMetrics;
     }
 
     /**
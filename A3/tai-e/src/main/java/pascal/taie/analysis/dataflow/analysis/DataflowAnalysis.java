@@ -73,4 +73,28 @@ public interface DataflowAnalysis<Node, Fact> {
      * Edge Transfer function for this analysis.
      */
     Fact transferEdge(Edge<Node> edge, Fact nodeFact);
+
+    /**
+     * @return true if this analysis is conditional, i.e., facts only flow
+     * along the edges which are feasible under the current facts
+     * (see {@link #isFeasible(Edge, Object)}), and the nodes which are not
+     * reached by any feasible edge are not transferred.
+     */
+    default boolean isConditional() {
+        return false;
+    }
+
+    /**
+     * Only used by conditional analyses. Feasibility must be monotone,
+     * i.e., a feasible edge stays feasible when the fact gets lower
+     * in the lattice.
+     *
+     * @param edge     the edge to check
+     * @param nodeFact the fact flowing out of the source of the edge
+     *                 (along the direction of the analysis)
+     * @return true if control may flow along given edge, otherwise false.
+     */
+    default boolean isFeasible(Edge<Node> edge, Fact nodeFact) {
+        return true;
+    }
 }
@@ -22,9 +22,13 @@
 
 package pascal.taie.analysis.dataflow.analysis;
 
+import pascal.taie.analysis.CacheableAnalysis;
 import pascal.taie.analysis.MethodAnalysis;
 import pascal.taie.analysis.dataflow.analysis.constprop.CPFact;
 import pascal.taie.analysis.dataflow.analysis.constprop.ConstantPropagation;
+import pascal.taie.analysis.dataflow.analysis.constprop.IntervalAnalysis;
+import pascal.taie.analysis.dataflow.analysis.constprop.IntervalFact;
+import pascal.taie.analysis.dataflow.analysis.constprop.SparseConstantPropagation;
 import pascal.taie.analysis.dataflow.analysis.constprop.Value;
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
 import pascal.taie.analysis.dataflow.fact.SetFact;
@@ -32,10 +36,13 @@ import pascal.taie.analysis.graph.cfg.CFG;
 import pascal.taie.analysis.graph.cfg.CFGBuilder;
 import pascal.taie.analysis.graph.cfg.Edge;
 import pascal.taie.config.AnalysisConfig;
+import pascal.taie.config.AnalysisOptions;
+import pascal.taie.config.ConfigException;
 import pascal.taie.ir.IR;
 import pascal.taie.ir.exp.ArithmeticExp;
 import pascal.taie.ir.exp.ArrayAccess;
 import pascal.taie.ir.exp.CastExp;
+import pascal.taie.ir.exp.Exp;
 import pascal.taie.ir.exp.FieldAccess;
 import pascal.taie.ir.exp.NewExp;
 import pascal.taie.ir.exp.RValue;
@@ -45,111 +52,240 @@ import pascal.taie.ir.stmt.If;
 import pascal.taie.ir.stmt.Stmt;
 import pascal.taie.ir.stmt.SwitchStmt;
 import pascal.taie.util.collection.Pair;
+import pascal.taie.util.collection.Sets;
 
-import java.util.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.function.BiFunction;
 
-public class DeadCodeDetection extends MethodAnalysis {
+public class DeadCodeDetection extends MethodAnalysis
+        implements CacheableAnalysis<Set<Stmt>> {
 
     public static final String ID = "deadcode";
 
+    /**
+     * ID of the constant propagation whose result is used, i.e.,
+     * {@link ConstantPropagation}, {@link SparseConstantPropagation}
+     * or {@link IntervalAnalysis}.
+     */
+    private final String constPropId;
+
+    /**
+     * If true, constant propagation and live variable analysis are run
+     * by this analysis on each method, and their results are dropped
+     * right after dead code detection instead of being kept in the IR.
+     * Their options are given by options "constprop-options" and
+     * "livevar-options" of this analysis, as they are not in the plan.
+     */
+    private final boolean fused;
+
+    /**
+     * Constant propagation run by the fused pipeline.
+     */
+    private final MethodAnalysis constProp;
+
+    /**
+     * Live variable analysis run by the fused pipeline.
+     */
+    private final LiveVariableAnalysis liveVar;
+
     public DeadCodeDetection(AnalysisConfig config) {
         super(config);
+        constPropId = switch (getOptions().getString("constprop")) {
+            case "sparse" -> SparseConstantPropagation.ID;
+            case "interval" -> IntervalAnalysis.ID;
+            default -> ConstantPropagation.ID;
+        };
+        fused = getOptions().getBooleanOrDefault("fused", false);
+        if (fused) {
+            AnalysisConfig constPropConfig = getFusedConfig(
+                    constPropId, "constprop-options");
+            constProp = switch (constPropId) {
+                case SparseConstantPropagation.ID ->
+                        new SparseConstantPropagation(constPropConfig);
+                case IntervalAnalysis.ID -> new IntervalAnalysis(constPropConfig);
+                default -> new ConstantPropagation(constPropConfig);
+            };
+            liveVar = new LiveVariableAnalysis(getFusedConfig(
+                    LiveVariableAnalysis.ID, "livevar-options"));
+        } else {
+            constProp = null;
+            liveVar = null;
+        }
+    }
+
+    /**
+     * @return the config of the analysis with given ID which is run by
+     * the fused pipeline, whose options are given by the option of this
+     * analysis with given key (default options if the key is absent).
+     */
+    private AnalysisConfig getFusedConfig(String id, String key) {
+        Object value = getOptions().get(key);
+        if (value == null) {
+            return new AnalysisConfig(id);
+        } else if (value instanceof Map<?, ?> map) {
+            Map<String, Object> options = new LinkedHashMap<>();
+            map.forEach((k, v) -> options.put(k.toString(), v));
+            return new AnalysisConfig(null, null, id, List.of(),
+                    new AnalysisOptions(options));
+        } else {
+            throw new ConfigException("Invalid " + key + " option of "
+                    + ID + ": " + value);
+        }
     }
 
     @Override
     public Set<Stmt> analyze(IR ir) {
         // obtain CFG
         CFG<Stmt> cfg = ir.getResult(CFGBuilder.ID);
-        // obtain result of constant propagation
-        DataflowResult<Stmt, CPFact> constants =
-                ir.getResult(ConstantPropagation.ID);
-        // obtain result of live variable analysis
-        DataflowResult<Stmt, SetFact<Var>> liveVars =
-                ir.getResult(LiveVariableAnalysis.ID);
-        // keep statements (dead code) sorted in the resulting set
-        Set<Stmt> deadCode = new TreeSet<>(Comparator.comparing(Stmt::getIndex));
-        // TODO - finish me
-        // Your task is to recognize dead code in ir and add it to deadCode
-        // bfs
-        Queue<Stmt> que = new java.util.LinkedList<>();
-        deadCode.addAll(cfg.getNodes());// add all nodes to deadCode, then remove live nodes
-        //visit set
-        Set<Stmt> visited = new HashSet<>();
-        que.add(cfg.getEntry());
-        //visited.add(cfg.getEntry());
-        while(!que.isEmpty()) {
-            Stmt stmt = que.poll();
-            visited.add(stmt);
-            // 赋值语句,左侧为不活跃变量且右侧无副作用
-            if(stmt instanceof AssignStmt<?,?> assignStmt) {
-                if(assignStmt.getLValue() instanceof Var lvalue && !liveVars.getOutFact(stmt).contains((lvalue))) {
-                    if(hasNoSideEffect(assignStmt.getRValue())) {
-                        // stmt为无用赋值语句
-                        //que.addAll(cfg.getSuccsOf(stmt));//bfs
-                        for(Stmt s : cfg.getSuccsOf(stmt)) {
-                            if(!visited.contains(s)) que.add(s);
-                        }
-                        continue;//不用删除这个stmt了
-                    }
-                }
+        if (fused) {
+            // the results are only referenced by this frame, thus their
+            // facts can be reclaimed as soon as dead code is detected
+            return detect(ir, cfg, getEvaluator(constProp.analyze(ir)),
+                    liveVar.analyze(ir));
+        } else {
+            return detect(ir, cfg, getEvaluator(ir.getResult(constPropId)),
+                    ir.getResult(LiveVariableAnalysis.ID));
+        }
+    }
+
+    /**
+     * Writes the indexes of dead statements.
+     */
+    @Override
+    public void writeResult(IR ir, Set<Stmt> deadCode, DataOutput out)
+            throws IOException {
+        out.writeInt(deadCode.size());
+        for (Stmt stmt : deadCode) {
+            out.writeInt(stmt.getIndex());
+        }
+    }
+
+    @Override
+    public Set<Stmt> readResult(IR ir, DataInput in) throws IOException {
+        Set<Stmt> deadCode = Sets.newHybridOrderedSet();
+        for (int i = in.readInt(); i > 0; --i) {
+            deadCode.add(ir.getStmt(in.readInt()));
+        }
+        return deadCode;
+    }
+
+    /**
+     * @return a function which evaluates the {@link Value} of an expression
+     * at a statement with given result of constant propagation.
+     */
+    @SuppressWarnings("unchecked")
+    private BiFunction<Exp, Stmt, Value> getEvaluator(Object result) {
+        if (constPropId.equals(IntervalAnalysis.ID)) {
+            DataflowResult<Stmt, IntervalFact> intervals =
+                    (DataflowResult<Stmt, IntervalFact>) result;
+            return (exp, stmt) -> IntervalAnalysis.evaluate(
+                    exp, intervals.getInFact(stmt)).toValue();
+        } else {
+            DataflowResult<Stmt, CPFact> constants =
+                    (DataflowResult<Stmt, CPFact>) result;
+            return (exp, stmt) -> ConstantPropagation.evaluate(
+                    exp, constants.getInFact(stmt));
+        }
+    }
+
+    /**
+     * Detects dead code in given IR with the results of
+     * constant propagation and live variable analysis.
+     */
+    private static Set<Stmt> detect(
+            IR ir, CFG<Stmt> cfg, BiFunction<Exp, Stmt, Value> evaluator,
+            DataflowResult<Stmt, SetFact<Var>> liveVars) {
+        // statements are indexed by Stmt.getIndex(), and the entry and exit
+        // of the CFG take the two indexes following the last statement
+        int nStmts = ir.getStmts().size();
+        BitSet visited = new BitSet(nStmts + 2);
+        BitSet live = new BitSet(nStmts + 2);
+        // nodes are marked visited when enqueued, thus each node is
+        // enqueued at most once
+        Queue<Stmt> queue = new ArrayDeque<>();
+        enqueue(cfg.getEntry(), visited, queue);
+        while (!queue.isEmpty()) {
+            Stmt stmt = queue.poll();
+            if (isDeadAssignment(stmt, liveVars)) {
+                // the assignment is dead, but control still flows through it
+                cfg.getSuccsOf(stmt).forEach(s -> enqueue(s, visited, queue));
+                continue;
             }
-            //队列里的stmt一定是可达的
-            deadCode.remove(stmt);
-            // 不可达代码检测
-            // 首先，在队列中的Stmt一定是控制流可达的
-            if(stmt instanceof If stmtif) {
-                Value condition = ConstantPropagation.evaluate(stmtif.getCondition(), constants.getInFact(stmt));
-                if(condition.isConstant()) {
-                    //如果条件是常量,只保留分支可达的分支进入队列，另一个分支一定是分支不可达的，为dead code
-                    for(Edge<Stmt> e : cfg.getOutEdgesOf(stmt)) {
-                        if((condition.getConstant() == 1 && e.getKind() == Edge.Kind.IF_TRUE) || (condition.getConstant() == 0 && e.getKind() == Edge.Kind.IF_FALSE)) {
-                            //que.add(e.getTarget());
-                            if(!visited.contains(e.getTarget())) que.add(e.getTarget());
-                        }
+            live.set(stmt.getIndex());
+            // only follow the edges that can be taken, so that
+            // unreachable branches remain dead
+            if (stmt instanceof If ifStmt) {
+                Value cond = evaluator.apply(ifStmt.getCondition(), stmt);
+                for (Edge<Stmt> edge : cfg.getOutEdgesOf(stmt)) {
+                    if (!cond.isConstant() || isTaken(edge, cond.getConstant())) {
+                        enqueue(edge.getTarget(), visited, queue);
                     }
                 }
-                //else que.addAll(cfg.getSuccsOf(stmt));//如果条件不是常量，那么两个分支都是可达的
-                else{
-                    for(Stmt s : cfg.getSuccsOf(stmt)) {
-                        if(!visited.contains(s)) que.add(s);
-                    }
-                }
-            }
-            else if(stmt instanceof SwitchStmt switchStmt) {
-                Value casevalue = ConstantPropagation.evaluate(switchStmt.getVar(), constants.getInFact(stmt));
-                if(casevalue.isConstant()) {
-                    // 如果case的值是常量，看哪个case的值与之对应，若有则该case的target可达，加入队列。若无，则default target可达，加入队列
-                    boolean flag = false;
-                    List<Pair<Integer, Stmt>> cases = switchStmt.getCaseTargets();
-                    for (int i =0; i < cases.size(); i++) {
-                        if(cases.get(i).first() == casevalue.getConstant()) {
-                            //que.add(cases.get(i).second());
-                            if(!visited.contains(cases.get(i).second())) que.add(cases.get(i).second());
-                            flag = true;
+            } else if (stmt instanceof SwitchStmt switchStmt) {
+                Value value = evaluator.apply(switchStmt.getVar(), stmt);
+                if (value.isConstant()) {
+                    Stmt target = switchStmt.getDefaultTarget();
+                    for (Pair<Integer, Stmt> caseTarget : switchStmt.getCaseTargets()) {
+                        if (caseTarget.first() == value.getConstant()) {
+                            target = caseTarget.second();
                             break;
                         }
                     }
-                    //if(!flag) que.add(switchStmt.getDefaultTarget());
-                    if(!flag && !visited.contains(switchStmt.getDefaultTarget())) que.add(switchStmt.getDefaultTarget());
-                }
-                //else que.addAll(cfg.getSuccsOf(stmt));//如果case的值不是常量，那么所有case都是可达的
-                else{
-                    for(Stmt s : cfg.getSuccsOf(stmt)) {
-                        if(!visited.contains(s)) que.add(s);
-                    }
-                }
-            }
-            //else que.addAll(cfg.getSuccsOf(stmt));//bfs
-            else {
-                for(Stmt s : cfg.getSuccsOf(stmt)) {
-                    if(!visited.contains(s)) que.add(s);
+                    enqueue(target, visited, queue);
+                } else {
+                    cfg.getSuccsOf(stmt).forEach(s -> enqueue(s, visited, queue));
                 }
+            } else {
+                cfg.getSuccsOf(stmt).forEach(s -> enqueue(s, visited, queue));
             }
         }
-        deadCode.remove(cfg.getExit());
+        // dead code consists of the statements which are not live,
+        // emitted in index order (the entry and exit are never dead)
+        Set<Stmt> deadCode = Sets.newHybridOrderedSet();
+        for (int i = live.nextClearBit(0); i < nStmts;
+             i = live.nextClearBit(i + 1)) {
+            deadCode.add(ir.getStmt(i));
+        }
         return deadCode;
     }
 
+    private static void enqueue(Stmt stmt, BitSet visited, Queue<Stmt> queue) {
+        if (!visited.get(stmt.getIndex())) {
+            visited.set(stmt.getIndex());
+            queue.add(stmt);
+        }
+    }
+
+    /**
+     * @return true if given edge of an if statement is taken
+     * when its condition evaluates to given constant.
+     */
+    private static boolean isTaken(Edge<Stmt> edge, int cond) {
+        return (cond == 1 && edge.getKind() == Edge.Kind.IF_TRUE) ||
+                (cond == 0 && edge.getKind() == Edge.Kind.IF_FALSE);
+    }
+
+    /**
+     * @return true if given statement is an assignment whose left-hand
+     * variable is not live and whose right-hand side has no side effect.
+     */
+    private static boolean isDeadAssignment(
+            Stmt stmt, DataflowResult<Stmt, SetFact<Var>> liveVars) {
+        return stmt instanceof AssignStmt<?, ?> assignStmt &&
+                assignStmt.getLValue() instanceof Var lhs &&
+                !liveVars.getOutFact(stmt).contains(lhs) &&
+                hasNoSideEffect(assignStmt.getRValue());
+    }
+
     /**
      * @return true if given RValue has no side effect, otherwise false.
      */
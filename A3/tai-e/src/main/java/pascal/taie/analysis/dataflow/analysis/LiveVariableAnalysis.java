@@ -22,73 +22,224 @@
 
 package pascal.taie.analysis.dataflow.analysis;
 
+import pascal.taie.analysis.CacheableAnalysis;
+import pascal.taie.analysis.dataflow.fact.BitSetFact;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.fact.FactCodec;
 import pascal.taie.analysis.dataflow.fact.SetFact;
+import pascal.taie.analysis.dataflow.solver.Solver;
 import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.analysis.graph.cfg.Edge;
 import pascal.taie.config.AnalysisConfig;
-import pascal.taie.ir.exp.LValue;
+import pascal.taie.ir.IR;
 import pascal.taie.ir.exp.RValue;
 import pascal.taie.ir.exp.Var;
 import pascal.taie.ir.stmt.Stmt;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
 /**
  * Implementation of classic live variable analysis.
+ * <p>
+ * When analyzing an {@link IR}, this analysis represents the facts as
+ * {@link BitSetFact}s indexed by {@link Var#getIndex()}, and precomputes
+ * the gen/kill sets (i.e., used/defined variables) of each statement
+ * once per CFG, so that the transfer of a statement is performed in place,
+ * see {@link BitVectorLiveness}.
  */
 public class LiveVariableAnalysis extends
-        AbstractDataflowAnalysis<Stmt, SetFact<Var>> {
+        AbstractDataflowAnalysis<Stmt, SetFact<Var>>
+        implements CacheableAnalysis<DataflowResult<Stmt, SetFact<Var>>> {
 
     public static final String ID = "livevar";
 
+    /**
+     * Encodes a fact as the indexes of its variables.
+     */
+    public static final FactCodec<SetFact<Var>> CODEC = new FactCodec<>() {
+
+        @Override
+        public void writeFact(SetFact<Var> fact, DataOutput out) throws IOException {
+            out.writeInt(fact.size());
+            for (Var var : fact.stream().toList()) {
+                out.writeInt(var.getIndex());
+            }
+        }
+
+        @Override
+        public SetFact<Var> readFact(IR ir, DataInput in) throws IOException {
+            SetFact<Var> fact = new BitSetFact<>(ir.getVars());
+            for (int i = in.readInt(); i > 0; --i) {
+                fact.add(ir.getVar(in.readInt()));
+            }
+            return fact;
+        }
+    };
+
     public LiveVariableAnalysis(AnalysisConfig config) {
         super(config);
     }
 
+    @Override
+    public DataflowResult<Stmt, SetFact<Var>> analyze(IR ir) {
+        CFG<Stmt> cfg = ir.getResult(CFGBuilder.ID);
+        return Solver.makeSolver(new BitVectorLiveness(cfg))
+                .solve(cfg, getOptions().getBooleanOrDefault("compact", false),
+                        newMetrics(ir));
+    }
+
     @Override
     public boolean isForward() {
         return false;
     }
 
+    // The following methods work on any SetFact, thus this analysis can
+    // also be solved directly by a solver, e.g., Solver.makeSolver(this).
+    // analyze(IR) uses the faster BitVectorLiveness instead.
+
     @Override
     public SetFact<Var> newBoundaryFact(CFG<Stmt> cfg) {
-        // TODO - finish me
         return new SetFact<>();
-        //return null;
     }
 
     @Override
     public SetFact<Var> newInitialFact() {
-        // TODO - finish me
-        //return null;
         return new SetFact<>();
     }
 
     @Override
     public void meetInto(SetFact<Var> fact, SetFact<Var> target) {
-        // TODO - finish me
-        // join fact into target
         target.union(fact);
     }
 
     @Override
     public boolean transferNode(Stmt stmt, SetFact<Var> in, SetFact<Var> out) {
-        // TODO - finish me
-        //in = use \cup (out - def)
-        SetFact<Var> use = new SetFact<>();
-        SetFact<Var> tempout = new SetFact<>();
-        tempout.union(out);
-        if(stmt.getDef().isPresent()) {
-            LValue def = stmt.getDef().get();
-            if(def instanceof Var){
-                tempout.remove((Var)def);
+        // in = use \cup (out - def)
+        SetFact<Var> newIn = out.copy();
+        if (stmt.getDef().orElse(null) instanceof Var def) {
+            newIn.remove(def);
+        }
+        for (RValue exp : stmt.getUses()) {
+            if (exp instanceof Var use) {
+                newIn.add(use);
             }
         }
-        for (RValue var : stmt.getUses()) {
-            if(var instanceof Var){
-                use.add((Var)var);
+        if (newIn.equals(in)) {
+            return false;
+        }
+        in.set(newIn);
+        return true;
+    }
+
+    @Override
+    public void writeResult(IR ir, DataflowResult<Stmt, SetFact<Var>> result,
+                            DataOutput out) throws IOException {
+        CODEC.writeResult(ir.getResult(CFGBuilder.ID), result, out);
+    }
+
+    @Override
+    public DataflowResult<Stmt, SetFact<Var>> readResult(IR ir, DataInput in)
+            throws IOException {
+        return CODEC.readResult(ir.getResult(CFGBuilder.ID), in);
+    }
+
+    /**
+     * Live variable analysis specialized for a single CFG.
+     * The variables of the CFG are densely indexed, thus the facts are
+     * represented as bit vectors, and the gen/kill sets of all
+     * statements are computed once before solving.
+     * <p>
+     * As the analysis instance is shared by the methods being analyzed
+     * (possibly in parallel), such per-CFG state is kept in this class
+     * instead of {@link LiveVariableAnalysis}.
+     */
+    private static class BitVectorLiveness
+            implements DataflowAnalysis<Stmt, SetFact<Var>> {
+
+        private final List<Var> vars;
+
+        /**
+         * Gen sets, i.e., variables used by each statement,
+         * indexed by {@link Stmt#getIndex()}.
+         */
+        private final BitSetFact<Var>[] gens;
+
+        /**
+         * Kill sets, i.e., the variable defined by each statement
+         * (or null if the statement defines no variable),
+         * indexed by {@link Stmt#getIndex()}.
+         */
+        private final Var[] kills;
+
+        private BitVectorLiveness(CFG<Stmt> cfg) {
+            vars = cfg.getIR().getVars();
+            // entry and exit nodes of the CFG are indexed after
+            // all statements of the IR
+            int nodes = cfg.getIR().getStmts().size() + 2;
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            BitSetFact<Var>[] gens = (BitSetFact<Var>[]) new BitSetFact[nodes];
+            this.gens = gens;
+            kills = new Var[nodes];
+            // statements that use no variables share the same empty gen set
+            BitSetFact<Var> emptyGen = new BitSetFact<>(vars);
+            for (Stmt stmt : cfg) {
+                int index = stmt.getIndex();
+                BitSetFact<Var> gen = emptyGen;
+                for (RValue exp : stmt.getUses()) {
+                    if (exp instanceof Var var) {
+                        if (gen == emptyGen) {
+                            gen = new BitSetFact<>(vars);
+                        }
+                        gen.add(var);
+                    }
+                }
+                gens[index] = gen;
+                if (stmt.getDef().orElse(null) instanceof Var var) {
+                    kills[index] = var;
+                }
             }
         }
-        use.union(tempout);
-        boolean flag = !use.equals(in);
-        in.set(use);
-        return flag;
+
+        @Override
+        public boolean isForward() {
+            return false;
+        }
+
+        @Override
+        public SetFact<Var> newBoundaryFact(CFG<Stmt> cfg) {
+            return new BitSetFact<>(vars);
+        }
+
+        @Override
+        public SetFact<Var> newInitialFact() {
+            return new BitSetFact<>(vars);
+        }
+
+        @Override
+        public void meetInto(SetFact<Var> fact, SetFact<Var> target) {
+            target.union(fact);
+        }
+
+        @Override
+        public boolean transferNode(Stmt stmt, SetFact<Var> in, SetFact<Var> out) {
+            // in = gen \cup (out - kill)
+            int index = stmt.getIndex();
+            return ((BitSetFact<Var>) in).setToGenKill(
+                    gens[index], (BitSetFact<Var>) out, kills[index]);
+        }
+
+        @Override
+        public boolean needTransferEdge(Edge<Stmt> edge) {
+            return false;
+        }
+
+        @Override
+        public SetFact<Var> transferEdge(Edge<Stmt> edge, SetFact<Var> nodeFact) {
+            throw new UnsupportedOperationException();
+        }
     }
 }
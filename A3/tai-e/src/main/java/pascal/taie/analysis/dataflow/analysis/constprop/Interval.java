@@ -0,0 +1,264 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+import pascal.taie.util.AnalysisException;
+
+/**
+ * Represents lattice values in interval analysis, i.e., ranges
+ * [lower, upper] of int values. The empty interval plays the role of
+ * UNDEF, and the full interval [-inf, +inf] plays the role of NAC.
+ * <p>
+ * Arithmetic on intervals is computed in long, and gives the full
+ * interval whenever the result may overflow, as int arithmetic wraps.
+ */
+public class Interval {
+
+    /**
+     * The object representing the empty interval.
+     */
+    private static final Interval EMPTY = new Interval(1, 0);
+
+    /**
+     * The object representing the full interval.
+     */
+    private static final Interval FULL =
+            new Interval(Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+    /**
+     * Cache frequently used singleton intervals for saving space.
+     */
+    private static final Interval[] cache = new Interval[-(-128) + 127 + 1];
+
+    static {
+        for (int i = 0; i < cache.length; i++) {
+            cache[i] = new Interval(i - 128, i - 128);
+        }
+    }
+
+    private final int lower;
+
+    private final int upper;
+
+    private Interval(int lower, int upper) {
+        this.lower = lower;
+        this.upper = upper;
+    }
+
+    /**
+     * @return the empty interval.
+     */
+    public static Interval getEmpty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return the full interval.
+     */
+    public static Interval getFull() {
+        return FULL;
+    }
+
+    /**
+     * Makes a singleton interval.
+     *
+     * @return the interval [value, value].
+     */
+    public static Interval makeConstant(int value) {
+        final int offset = 128;
+        if (value >= -128 && value <= 127) { // will cache
+            return cache[value + offset];
+        }
+        return new Interval(value, value);
+    }
+
+    /**
+     * @return the interval [lower, upper], or the empty interval
+     * if lower > upper.
+     */
+    public static Interval make(int lower, int upper) {
+        if (lower > upper) {
+            return EMPTY;
+        } else if (lower == upper) {
+            return makeConstant(lower);
+        } else if (lower == Integer.MIN_VALUE && upper == Integer.MAX_VALUE) {
+            return FULL;
+        }
+        return new Interval(lower, upper);
+    }
+
+    /**
+     * @return the interval [lower, upper] if it fits in int,
+     * otherwise the full interval.
+     */
+    static Interval make(long lower, long upper) {
+        if (lower < Integer.MIN_VALUE || upper > Integer.MAX_VALUE) {
+            return FULL;
+        }
+        return make((int) lower, (int) upper);
+    }
+
+    /**
+     * @return true if this interval is empty, otherwise false.
+     */
+    public boolean isEmpty() {
+        return lower > upper;
+    }
+
+    /**
+     * @return true if this interval is full, otherwise false.
+     */
+    public boolean isFull() {
+        return lower == Integer.MIN_VALUE && upper == Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return true if this interval contains exactly one value, otherwise false.
+     */
+    public boolean isConstant() {
+        return lower == upper;
+    }
+
+    /**
+     * If this interval contains exactly one value, then returns the value.
+     * The client code should call {@link #isConstant()} to check if this
+     * interval is constant before calling this method.
+     *
+     * @throws AnalysisException if this interval is not a constant
+     */
+    public int getConstant() {
+        if (!isConstant()) {
+            throw new AnalysisException(this + " is not a constant");
+        }
+        return lower;
+    }
+
+    /**
+     * @return the lower bound of this interval.
+     * The client code should make sure that this interval is not empty.
+     */
+    public int getLower() {
+        return lower;
+    }
+
+    /**
+     * @return the upper bound of this interval.
+     * The client code should make sure that this interval is not empty.
+     */
+    public int getUpper() {
+        return upper;
+    }
+
+    /**
+     * @return true if this interval contains given value, otherwise false.
+     */
+    public boolean contains(int value) {
+        return lower <= value && value <= upper;
+    }
+
+    /**
+     * @return the smallest interval containing both this and given interval.
+     */
+    public Interval join(Interval other) {
+        if (isEmpty()) {
+            return other;
+        } else if (other.isEmpty()) {
+            return this;
+        } else if (lower <= other.lower && other.upper <= upper) {
+            return this;
+        }
+        return make(Math.min(lower, other.lower), Math.max(upper, other.upper));
+    }
+
+    /**
+     * @return the intersection of this and given interval.
+     */
+    public Interval intersect(Interval other) {
+        if (isEmpty() || other.isEmpty()) {
+            return EMPTY;
+        } else if (lower >= other.lower && upper <= other.upper) {
+            return this;
+        }
+        return make(Math.max(lower, other.lower), Math.min(upper, other.upper));
+    }
+
+    /**
+     * Widens this interval with given (newer) interval, i.e., the bounds
+     * which are exceeded by the newer interval go to infinity, so that
+     * ascending chains of intervals stabilize quickly.
+     *
+     * @return an interval containing both this and given interval.
+     */
+    public Interval widen(Interval next) {
+        if (isEmpty()) {
+            return next;
+        } else if (next.isEmpty()) {
+            return this;
+        }
+        return make(next.lower < lower ? Integer.MIN_VALUE : lower,
+                next.upper > upper ? Integer.MAX_VALUE : upper);
+    }
+
+    /**
+     * Converts this interval to the {@link Value} of constant propagation.
+     *
+     * @return UNDEF if this interval is empty, the constant if this interval
+     * is a singleton, otherwise NAC.
+     */
+    public Value toValue() {
+        if (isEmpty()) {
+            return Value.getUndef();
+        } else if (isConstant()) {
+            return Value.makeConstant(lower);
+        }
+        return Value.getNAC();
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * lower + upper;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        } else if (!(obj instanceof Interval)) {
+            return false;
+        }
+        Interval other = (Interval) obj;
+        return (isEmpty() && other.isEmpty()) ||
+                (lower == other.lower && upper == other.upper);
+    }
+
+    @Override
+    public String toString() {
+        if (isEmpty()) {
+            return "EMPTY";
+        } else if (isConstant()) {
+            return Integer.toString(lower);
+        }
+        return "[" + (lower == Integer.MIN_VALUE ? "-inf" : lower) + ", " +
+                (upper == Integer.MAX_VALUE ? "+inf" : upper) + "]";
+    }
+}
@@ -0,0 +1,544 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+import pascal.taie.analysis.dataflow.analysis.AbstractDataflowAnalysis;
+import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.solver.Solver;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.analysis.graph.cfg.Edge;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.ArithmeticExp;
+import pascal.taie.ir.exp.BinaryExp;
+import pascal.taie.ir.exp.BitwiseExp;
+import pascal.taie.ir.exp.ConditionExp;
+import pascal.taie.ir.exp.Exp;
+import pascal.taie.ir.exp.IntLiteral;
+import pascal.taie.ir.exp.ShiftExp;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.DefinitionStmt;
+import pascal.taie.ir.stmt.If;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.ir.stmt.SwitchStmt;
+import pascal.taie.language.type.PrimitiveType;
+
+import java.util.BitSet;
+
+/**
+ * Interval analysis, which generalizes constant propagation to ranges
+ * of int values, so that branches guarded by ranges (e.g., loop counters)
+ * can be decided as well.
+ * <p>
+ * To make the analysis terminate quickly, facts are widened at loop
+ * heads, i.e., the targets of backward jumps in the IR. Facts are refined
+ * along the branches of if and switch statements, and infeasible branches
+ * are pruned when the analysis is conditional (by default).
+ */
+public class IntervalAnalysis extends
+        AbstractDataflowAnalysis<Stmt, IntervalFact> {
+
+    public static final String ID = "interval";
+
+    private static final Interval BOOLEAN = Interval.make(0, 1);
+
+    private static final Interval TRUE = Interval.makeConstant(1);
+
+    private static final Interval FALSE = Interval.makeConstant(0);
+
+    private final boolean conditional;
+
+    public IntervalAnalysis(AnalysisConfig config) {
+        super(config);
+        conditional = getOptions().getBooleanOrDefault("conditional", true);
+    }
+
+    /**
+     * Solves the IR with widening at its loop heads, see {@link LoopWidening}.
+     * Widening is done on the facts of individual loop heads, thus this
+     * analysis is always solved on statements (instead of basic blocks).
+     */
+    @Override
+    public DataflowResult<Stmt, IntervalFact> analyze(IR ir) {
+        CFG<Stmt> cfg = ir.getResult(CFGBuilder.ID);
+        return Solver.makeSolver(new LoopWidening(cfg))
+                .solve(cfg, false, newMetrics(ir));
+    }
+
+    @Override
+    public boolean isForward() {
+        return true;
+    }
+
+    @Override
+    public IntervalFact newBoundaryFact(CFG<Stmt> cfg) {
+        IntervalFact fact = new IntervalFact();
+        for (Var param : cfg.getIR().getParams()) {
+            if (ConstantPropagation.canHoldInt(param)) {
+                fact.update(param, getRange((PrimitiveType) param.getType()));
+            }
+        }
+        return fact;
+    }
+
+    /**
+     * @return the range of values of given int-like type.
+     */
+    private static Interval getRange(PrimitiveType type) {
+        return switch (type) {
+            case BYTE -> Interval.make(Byte.MIN_VALUE, Byte.MAX_VALUE);
+            case SHORT -> Interval.make(Short.MIN_VALUE, Short.MAX_VALUE);
+            case CHAR -> Interval.make(Character.MIN_VALUE, Character.MAX_VALUE);
+            case BOOLEAN -> BOOLEAN;
+            default -> Interval.getFull();
+        };
+    }
+
+    @Override
+    public IntervalFact newInitialFact() {
+        return new IntervalFact();
+    }
+
+    @Override
+    public void meetInto(IntervalFact fact, IntervalFact target) {
+        target.join(fact);
+    }
+
+    /**
+     * Transfers given statement without widening, which is only
+     * applied to loop heads when analyzing an IR.
+     */
+    @Override
+    public boolean transferNode(Stmt stmt, IntervalFact in, IntervalFact out) {
+        return transferNode(stmt, in, out, false);
+    }
+
+    private boolean transferNode(Stmt stmt, IntervalFact in, IntervalFact out,
+                                 boolean widen) {
+        IntervalFact oldOut = out.copy();
+        out.copyFrom(in);
+        if (stmt instanceof DefinitionStmt<?, ?> defStmt &&
+                defStmt.getLValue() instanceof Var var &&
+                ConstantPropagation.canHoldInt(var)) {
+            out.update(var, evaluate(defStmt.getRValue(), in));
+        }
+        if (widen) {
+            for (Var var : oldOut.keySet()) {
+                out.update(var, oldOut.get(var).widen(out.get(var)));
+            }
+        }
+        return !oldOut.equals(out);
+    }
+
+    @Override
+    public boolean needTransferEdge(Edge<Stmt> edge) {
+        return switch (edge.getKind()) {
+            case IF_TRUE, IF_FALSE, SWITCH_CASE, SWITCH_DEFAULT -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Refines the intervals of the variables tested by the source of
+     * given edge. If the edge cannot be taken, then no fact flows along it.
+     */
+    @Override
+    public IntervalFact transferEdge(Edge<Stmt> edge, IntervalFact nodeFact) {
+        IntervalFact fact = nodeFact.copy();
+        boolean feasible = true;
+        if (edge.getSource() instanceof If ifStmt) {
+            ConditionExp cond = ifStmt.getCondition();
+            Var x = cond.getOperand1();
+            Var y = cond.getOperand2();
+            if (ConstantPropagation.canHoldInt(x) &&
+                    ConstantPropagation.canHoldInt(y)) {
+                ConditionExp.Op op = edge.getKind() == Edge.Kind.IF_TRUE ?
+                        cond.getOperator() : negate(cond.getOperator());
+                Interval ix = nodeFact.get(x);
+                Interval iy = nodeFact.get(y);
+                Interval rx = refine(op, ix, iy);
+                Interval ry = refine(swap(op), iy, ix);
+                feasible = !rx.isEmpty() && !ry.isEmpty();
+                fact.update(x, rx);
+                fact.update(y, ry);
+            }
+        } else if (edge.getSource() instanceof SwitchStmt switchStmt) {
+            Var var = switchStmt.getVar();
+            Interval interval = nodeFact.get(var);
+            if (edge.isSwitchCase()) {
+                interval = interval.intersect(
+                        Interval.makeConstant(edge.getCaseValue()));
+            } else {
+                // trim the case values at the bounds of the interval
+                boolean changed = true;
+                while (changed && !interval.isEmpty()) {
+                    Interval old = interval;
+                    for (int value : switchStmt.getCaseValues()) {
+                        interval = exclude(interval, value);
+                    }
+                    changed = !interval.equals(old);
+                }
+            }
+            feasible = !interval.isEmpty();
+            fact.update(var, interval);
+        }
+        return feasible ? fact : newInitialFact();
+    }
+
+    @Override
+    public boolean isConditional() {
+        return conditional;
+    }
+
+    @Override
+    public boolean isFeasible(Edge<Stmt> edge, IntervalFact nodeFact) {
+        if (edge.getSource() instanceof If ifStmt) {
+            Interval cond = evaluate(ifStmt.getCondition(), nodeFact);
+            return switch (edge.getKind()) {
+                case IF_TRUE -> cond.contains(1);
+                case IF_FALSE -> cond.contains(0);
+                default -> true;
+            };
+        } else if (edge.getSource() instanceof SwitchStmt switchStmt) {
+            Interval interval = nodeFact.get(switchStmt.getVar());
+            if (edge.isSwitchCase()) {
+                return interval.contains(edge.getCaseValue());
+            } else if (edge.getKind() == Edge.Kind.SWITCH_DEFAULT) {
+                return !interval.isEmpty() && !(interval.isConstant() &&
+                        switchStmt.getCaseValues().contains(interval.getConstant()));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the values of x which may satisfy x op y,
+     * where x is in ix and y is in iy.
+     */
+    private static Interval refine(ConditionExp.Op op, Interval ix, Interval iy) {
+        if (ix.isEmpty() || iy.isEmpty()) {
+            return Interval.getEmpty();
+        }
+        return switch (op) {
+            case EQ -> ix.intersect(iy);
+            case NE -> iy.isConstant() ? exclude(ix, iy.getConstant()) : ix;
+            case LT -> ix.intersect(atMost(iy.getUpper() - 1L));
+            case LE -> ix.intersect(atMost(iy.getUpper()));
+            case GT -> ix.intersect(atLeast(iy.getLower() + 1L));
+            case GE -> ix.intersect(atLeast(iy.getLower()));
+        };
+    }
+
+    /**
+     * @return the operator op' such that x op y is equivalent to y op' x.
+     */
+    private static ConditionExp.Op swap(ConditionExp.Op op) {
+        return switch (op) {
+            case EQ, NE -> op;
+            case LT -> ConditionExp.Op.GT;
+            case LE -> ConditionExp.Op.GE;
+            case GT -> ConditionExp.Op.LT;
+            case GE -> ConditionExp.Op.LE;
+        };
+    }
+
+    /**
+     * @return the operator op' such that x op' y is equivalent to !(x op y).
+     */
+    private static ConditionExp.Op negate(ConditionExp.Op op) {
+        return switch (op) {
+            case EQ -> ConditionExp.Op.NE;
+            case NE -> ConditionExp.Op.EQ;
+            case LT -> ConditionExp.Op.GE;
+            case LE -> ConditionExp.Op.GT;
+            case GT -> ConditionExp.Op.LE;
+            case GE -> ConditionExp.Op.LT;
+        };
+    }
+
+    private static Interval atMost(long bound) {
+        return bound < Integer.MIN_VALUE ? Interval.getEmpty() :
+                Interval.make(Integer.MIN_VALUE, (int) Math.min(bound, Integer.MAX_VALUE));
+    }
+
+    private static Interval atLeast(long bound) {
+        return bound > Integer.MAX_VALUE ? Interval.getEmpty() :
+                Interval.make((int) Math.max(bound, Integer.MIN_VALUE), Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return given interval without given value, which can only be
+     * removed when it is a bound of the interval.
+     */
+    private static Interval exclude(Interval interval, int value) {
+        if (interval.isEmpty()) {
+            return interval;
+        } else if (interval.getLower() == value) {
+            return Interval.make(value + 1L, interval.getUpper());
+        } else if (interval.getUpper() == value) {
+            return Interval.make(interval.getLower(), value - 1L);
+        }
+        return interval;
+    }
+
+    /**
+     * Evaluates the {@link Interval} of given expression.
+     *
+     * @param exp the expression to be evaluated
+     * @param in  IN fact of the statement
+     * @return the resulting {@link Interval}
+     */
+    public static Interval evaluate(Exp exp, IntervalFact in) {
+        if (exp instanceof Var var) {
+            return in.get(var);
+        } else if (exp instanceof IntLiteral intLiteral) {
+            return Interval.makeConstant(intLiteral.getValue());
+        } else if (exp instanceof BinaryExp binaryExp) {
+            Var var1 = binaryExp.getOperand1();
+            Var var2 = binaryExp.getOperand2();
+            if (!ConstantPropagation.canHoldInt(var1) ||
+                    !ConstantPropagation.canHoldInt(var2)) {
+                return Interval.getFull();
+            }
+            Interval x = in.get(var1);
+            Interval y = in.get(var2);
+            if (x.isEmpty() || y.isEmpty()) {
+                return Interval.getEmpty();
+            }
+            if (binaryExp instanceof ArithmeticExp arithmeticExp) {
+                return evaluate(arithmeticExp.getOperator(), x, y);
+            } else if (binaryExp instanceof ConditionExp conditionExp) {
+                return evaluate(conditionExp.getOperator(), x, y);
+            } else if (binaryExp instanceof BitwiseExp bitwiseExp) {
+                return evaluate(bitwiseExp.getOperator(), x, y);
+            } else if (binaryExp instanceof ShiftExp shiftExp) {
+                return evaluate(shiftExp.getOperator(), x, y);
+            }
+        }
+        return Interval.getFull();
+    }
+
+    private static Interval evaluate(ArithmeticExp.Op op, Interval x, Interval y) {
+        long xl = x.getLower(), xu = x.getUpper();
+        long yl = y.getLower(), yu = y.getUpper();
+        return switch (op) {
+            case ADD -> Interval.make(xl + yl, xu + yu);
+            case SUB -> Interval.make(xl - yu, xu - yl);
+            case MUL -> {
+                long p1 = xl * yl, p2 = xl * yu, p3 = xu * yl, p4 = xu * yu;
+                yield Interval.make(Math.min(Math.min(p1, p2), Math.min(p3, p4)),
+                        Math.max(Math.max(p1, p2), Math.max(p3, p4)));
+            }
+            case DIV -> {
+                // division by zero throws exception, thus zero is excluded
+                Interval neg = y.intersect(atMost(-1));
+                Interval pos = y.intersect(atLeast(1));
+                yield divide(x, neg).join(divide(x, pos));
+            }
+            case REM -> {
+                if (y.isConstant() && y.getConstant() == 0) {
+                    yield Interval.getEmpty();
+                } else if (x.isConstant() && y.isConstant()) {
+                    yield Interval.makeConstant(x.getConstant() % y.getConstant());
+                }
+                // |x % y| < |y|, and x % y has the sign of x
+                long bound = Math.max(Math.abs(yl), Math.abs(yu)) - 1;
+                if (xl >= 0) {
+                    yield Interval.make(0, Math.min(xu, bound));
+                } else if (xu <= 0) {
+                    yield Interval.make(Math.max(xl, -bound), 0);
+                }
+                yield Interval.make(-bound, bound);
+            }
+        };
+    }
+
+    /**
+     * @return x / y where y does not contain zero.
+     */
+    private static Interval divide(Interval x, Interval y) {
+        if (y.isEmpty()) {
+            return y;
+        }
+        long xl = x.getLower(), xu = x.getUpper();
+        long yl = y.getLower(), yu = y.getUpper();
+        long q1 = xl / yl, q2 = xl / yu, q3 = xu / yl, q4 = xu / yu;
+        return Interval.make(Math.min(Math.min(q1, q2), Math.min(q3, q4)),
+                Math.max(Math.max(q1, q2), Math.max(q3, q4)));
+    }
+
+    private static Interval evaluate(ConditionExp.Op op, Interval x, Interval y) {
+        // whether x op y holds for all values, or for no values
+        boolean always, never;
+        switch (op) {
+            case EQ, NE -> {
+                boolean equal = x.isConstant() && x.equals(y);
+                boolean disjoint = x.intersect(y).isEmpty();
+                always = op == ConditionExp.Op.EQ ? equal : disjoint;
+                never = op == ConditionExp.Op.EQ ? disjoint : equal;
+            }
+            case LT -> {
+                always = x.getUpper() < y.getLower();
+                never = x.getLower() >= y.getUpper();
+            }
+            case LE -> {
+                always = x.getUpper() <= y.getLower();
+                never = x.getLower() > y.getUpper();
+            }
+            case GT -> {
+                always = x.getLower() > y.getUpper();
+                never = x.getUpper() <= y.getLower();
+            }
+            case GE -> {
+                always = x.getLower() >= y.getUpper();
+                never = x.getUpper() < y.getLower();
+            }
+            default -> throw new AssertionError(op);
+        }
+        return always ? TRUE : never ? FALSE : BOOLEAN;
+    }
+
+    private static Interval evaluate(BitwiseExp.Op op, Interval x, Interval y) {
+        if (x.isConstant() && y.isConstant()) {
+            int c1 = x.getConstant(), c2 = y.getConstant();
+            return Interval.makeConstant(switch (op) {
+                case OR -> c1 | c2;
+                case AND -> c1 & c2;
+                case XOR -> c1 ^ c2;
+            });
+        }
+        if (op == BitwiseExp.Op.AND && (x.getLower() >= 0 || y.getLower() >= 0)) {
+            // the result is non-negative and at most the non-negative operand
+            int upper = Integer.MAX_VALUE;
+            if (x.getLower() >= 0) {
+                upper = x.getUpper();
+            }
+            if (y.getLower() >= 0) {
+                upper = Math.min(upper, y.getUpper());
+            }
+            return Interval.make(0, upper);
+        }
+        if (x.getLower() >= 0 && y.getLower() >= 0) {
+            // OR and XOR of non-negative values cannot exceed the highest bit
+            long max = Math.max(x.getUpper(), y.getUpper());
+            return Interval.make(0, Math.max(0, (Long.highestOneBit(max) << 1) - 1));
+        }
+        return Interval.getFull();
+    }
+
+    private static Interval evaluate(ShiftExp.Op op, Interval x, Interval y) {
+        if (x.isConstant() && y.isConstant()) {
+            int c1 = x.getConstant(), c2 = y.getConstant();
+            return Interval.makeConstant(switch (op) {
+                case SHL -> c1 << c2;
+                case SHR -> c1 >> c2;
+                case USHR -> c1 >>> c2;
+            });
+        }
+        if (op != ShiftExp.Op.SHL && x.getLower() >= 0) {
+            // right shifts of non-negative values cannot increase them
+            return Interval.make(0, x.getUpper());
+        }
+        return Interval.getFull();
+    }
+    /**
+     * Interval analysis on a single CFG, which widens the facts at the
+     * loop heads of the CFG, i.e., the targets of backward jumps.
+     * <p>
+     * As the analysis instance is shared by the methods being analyzed
+     * (possibly in parallel), such per-CFG state is kept in this class
+     * instead of {@link IntervalAnalysis}.
+     */
+    private class LoopWidening implements DataflowAnalysis<Stmt, IntervalFact> {
+
+        /**
+         * Loop heads, indexed by {@link Stmt#getIndex()}.
+         */
+        private final BitSet loopHeads;
+
+        private LoopWidening(CFG<Stmt> cfg) {
+            // entry and exit nodes of the CFG are indexed after
+            // all statements of the IR
+            loopHeads = new BitSet(cfg.getIR().getStmts().size() + 2);
+            // indexes of statements increase along forward jumps,
+            // thus every cycle in the CFG contains a backward jump
+            for (Stmt stmt : cfg) {
+                for (Edge<Stmt> edge : cfg.getInEdgesOf(stmt)) {
+                    Stmt source = edge.getSource();
+                    if (!cfg.isEntry(source) && source.getIndex() >= stmt.getIndex()) {
+                        loopHeads.set(stmt.getIndex());
+                        break;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean isForward() {
+            return IntervalAnalysis.this.isForward();
+        }
+
+        @Override
+        public IntervalFact newBoundaryFact(CFG<Stmt> cfg) {
+            return IntervalAnalysis.this.newBoundaryFact(cfg);
+        }
+
+        @Override
+        public IntervalFact newInitialFact() {
+            return IntervalAnalysis.this.newInitialFact();
+        }
+
+        @Override
+        public void meetInto(IntervalFact fact, IntervalFact target) {
+            IntervalAnalysis.this.meetInto(fact, target);
+        }
+
+        @Override
+        public boolean transferNode(Stmt stmt, IntervalFact in, IntervalFact out) {
+            return IntervalAnalysis.this.transferNode(stmt, in, out,
+                    loopHeads.get(stmt.getIndex()));
+        }
+
+        @Override
+        public boolean needTransferEdge(Edge<Stmt> edge) {
+            return IntervalAnalysis.this.needTransferEdge(edge);
+        }
+
+        @Override
+        public IntervalFact transferEdge(Edge<Stmt> edge, IntervalFact nodeFact) {
+            return IntervalAnalysis.this.transferEdge(edge, nodeFact);
+        }
+
+        @Override
+        public boolean isConditional() {
+            return IntervalAnalysis.this.isConditional();
+        }
+
+        @Override
+        public boolean isFeasible(Edge<Stmt> edge, IntervalFact nodeFact) {
+            return IntervalAnalysis.this.isFeasible(edge, nodeFact);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+import pascal.taie.analysis.dataflow.fact.MapFact;
+import pascal.taie.ir.exp.Var;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Represents data facts of interval analysis, which maps variables
+ * to their intervals. Variables which are absent from the map are
+ * mapped to the empty interval.
+ */
+public class IntervalFact extends MapFact<Var, Interval> {
+
+    public IntervalFact() {
+        this(Collections.emptyMap());
+    }
+
+    private IntervalFact(Map<Var, Interval> map) {
+        super(map);
+    }
+
+    /**
+     * @return the interval of given variable in this fact,
+     * or the empty interval if the variable is absent.
+     */
+    @Override
+    public Interval get(Var key) {
+        return map.getOrDefault(key, Interval.getEmpty());
+    }
+
+    /**
+     * Updates the interval of given variable; if the interval is empty,
+     * then removes the variable from this fact.
+     *
+     * @return true if the update changes this fact, otherwise false.
+     */
+    @Override
+    public boolean update(Var key, Interval value) {
+        if (value.isEmpty()) {
+            return remove(key) != null;
+        }
+        return super.update(key, value);
+    }
+
+    /**
+     * Joins given fact into this fact.
+     *
+     * @return true if this fact changed, otherwise false.
+     */
+    public boolean join(IntervalFact fact) {
+        boolean changed = false;
+        for (Map.Entry<Var, Interval> entry : fact.map.entrySet()) {
+            Var var = entry.getKey();
+            changed |= update(var, get(var).join(entry.getValue()));
+        }
+        return changed;
+    }
+
+    @Override
+    public IntervalFact copy() {
+        return new IntervalFact(this.map);
+    }
+}
@@ -0,0 +1,732 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+import pascal.taie.analysis.MethodAnalysis;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.config.AnalysisConfig;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.exp.RValue;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.ir.stmt.DefinitionStmt;
+import pascal.taie.ir.stmt.Stmt;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Sparse constant propagation, which propagates lattice values only along
+ * def-use chains instead of carrying a {@link CPFact} through every statement.
+ * <p>
+ * The def-use chains are built in SSA form: phi functions are placed at the
+ * iterated dominance frontiers of the definitions of each variable, and a
+ * single walk over the dominator tree links each use to the one definition
+ * (or phi) reaching it. The solver only re-evaluates a definition when the
+ * value of some definition it uses changes.
+ * <p>
+ * No fact is stored per statement. The {@link CPFact} of a statement is
+ * rebuilt from the def-use chains of its uses when it is queried, thus it
+ * only contains the variables used (and, for the out fact, defined) by the
+ * statement, whose values are the same as computed by
+ * {@link ConstantPropagation}.
+ */
+public class SparseConstantPropagation extends MethodAnalysis {
+
+    public static final String ID = "sparse-constprop";
+
+    public SparseConstantPropagation(AnalysisConfig config) {
+        super(config);
+    }
+
+    @Override
+    public DataflowResult<Stmt, CPFact> analyze(IR ir) {
+        CFG<Stmt> cfg = ir.getResult(CFGBuilder.ID);
+        return new DefUseSolver(cfg).solve();
+    }
+
+    /**
+     * @return the variable defined by given statement if the statement
+     * is relevant to constant propagation, otherwise null.
+     */
+    private static Var getDefVar(Stmt stmt) {
+        if (stmt instanceof DefinitionStmt<?, ?> def &&
+                def.getLValue() instanceof Var var &&
+                ConstantPropagation.canHoldInt(var)) {
+            return var;
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of uses of given statement which are variables
+     * relevant to constant propagation.
+     */
+    private static int countUses(Stmt stmt) {
+        int count = 0;
+        for (RValue use : stmt.getUses()) {
+            if (use instanceof Var var && ConstantPropagation.canHoldInt(var)) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param names  definitions reaching the uses counted by
+     *               {@link #countUses(Stmt)}, where -1 means UNDEF.
+     * @param values value of each definition
+     * @return a fact holding the values of the variables used by given statement.
+     */
+    private static CPFact toFact(Stmt stmt, int[] names, Value[] values) {
+        CPFact fact = new CPFact();
+        if (names != null) {
+            int i = 0;
+            for (RValue use : stmt.getUses()) {
+                if (use instanceof Var var && ConstantPropagation.canHoldInt(var)) {
+                    int name = names[i++];
+                    fact.update(var, name == -1 ? Value.getUndef() : values[name]);
+                }
+            }
+        }
+        return fact;
+    }
+
+    /**
+     * Builds def-use chains of a CFG in SSA form and solves values of
+     * definitions on them.
+     * <p>
+     * Nodes are indexed by {@link Stmt#getIndex()}, followed by the entry,
+     * the exit and a virtual root, whose successors are the entry and
+     * one node of each part of the CFG which is unreachable from the entry
+     * (such parts start with UNDEF for all variables, as in the dense analysis).
+     * <p>
+     * Definitions (names) are numbered densely: the definitions of the
+     * statements come first, followed by one pseudo definition for each
+     * parameter (defined at the entry, whose value is NAC), and then the phis.
+     */
+    private static class DefUseSolver {
+
+        private final CFG<Stmt> cfg;
+
+        private final List<Var> vars;
+
+        private final int stmtCount;
+
+        private final int entry, exit, root, nodeCount;
+
+        /**
+         * Statement of each node (null for the root).
+         */
+        private final Stmt[] nodes;
+
+        /**
+         * Successors of the nodes except the root, in CSR format.
+         */
+        private int[] succStart, succs;
+
+        /**
+         * Successors of the root.
+         */
+        private final Links rootSuccs = new Links(1);
+
+        /**
+         * Predecessors of each node, in CSR format.
+         */
+        private int[] predStart, preds;
+
+        /**
+         * Nodes in reverse post-order, and the position of each node in it.
+         */
+        private int[] rpo, rpoNums;
+
+        /**
+         * Immediate dominator of each node.
+         */
+        private int[] idoms;
+
+        /**
+         * Definition name of each statement, or -1 if it is not a definition.
+         */
+        private final int[] defNames;
+
+        /**
+         * Statement of each definition name.
+         */
+        private final Stmt[] defStmts;
+
+        /**
+         * Parameters relevant to constant propagation.
+         */
+        private final Var[] params;
+
+        /**
+         * Phis at each node.
+         */
+        private final Links phis;
+
+        /**
+         * Variable index of each phi.
+         */
+        private int[] phiVars = new int[16];
+
+        private int phiCount;
+
+        /**
+         * Operands of each phi, set by {@link #rename()}.
+         */
+        private Links operands;
+
+        /**
+         * Definitions reaching the uses of each statement,
+         * see {@link #toFact(Stmt, int[], Value[])}.
+         */
+        private final int[][] useNames;
+
+        /**
+         * Value of each definition.
+         */
+        private Value[] values;
+
+        /**
+         * Number of evaluations of definitions performed by the solver.
+         */
+        private int evaluations;
+
+        private DefUseSolver(CFG<Stmt> cfg) {
+            this.cfg = cfg;
+            IR ir = cfg.getIR();
+            vars = ir.getVars();
+            stmtCount = ir.getStmts().size();
+            entry = stmtCount;
+            exit = stmtCount + 1;
+            root = stmtCount + 2;
+            nodeCount = stmtCount + 3;
+            nodes = new Stmt[nodeCount];
+            for (Stmt node : cfg) {
+                nodes[index(node)] = node;
+            }
+            defNames = new int[stmtCount];
+            int defCount = 0;
+            for (int i = 0; i < stmtCount; ++i) {
+                defNames[i] = nodes[i] != null && getDefVar(nodes[i]) != null ?
+                        defCount++ : -1;
+            }
+            defStmts = new Stmt[defCount];
+            for (int i = 0; i < stmtCount; ++i) {
+                if (defNames[i] != -1) {
+                    defStmts[defNames[i]] = nodes[i];
+                }
+            }
+            params = ir.getParams()
+                    .stream()
+                    .filter(ConstantPropagation::canHoldInt)
+                    .toArray(Var[]::new);
+            phis = new Links(nodeCount);
+            useNames = new int[stmtCount][];
+        }
+
+        private int index(Stmt node) {
+            if (cfg.isEntry(node)) {
+                return entry;
+            } else if (cfg.isExit(node)) {
+                return exit;
+            } else {
+                return node.getIndex();
+            }
+        }
+
+        private Result solve() {
+            buildGraph();
+            computeDominators();
+            placePhis(computeFrontiers());
+            rename();
+            propagate();
+            return new Result(cfg, defNames, useNames, values, evaluations);
+        }
+
+        /**
+         * Builds successors and predecessors of the nodes, and orders
+         * the nodes in reverse post-order of a depth-first search from
+         * the root, which also decides the successors of the root.
+         */
+        private void buildGraph() {
+            succStart = new int[nodeCount];
+            int edgeCount = 0;
+            for (int i = 0; i < root; ++i) {
+                succStart[i] = edgeCount;
+                if (nodes[i] != null) {
+                    edgeCount += cfg.getSuccsOf(nodes[i]).size();
+                }
+            }
+            succStart[root] = edgeCount;
+            succs = new int[edgeCount];
+            for (int i = 0; i < root; ++i) {
+                if (nodes[i] != null) {
+                    int k = succStart[i];
+                    for (Stmt succ : cfg.getSuccsOf(nodes[i])) {
+                        succs[k++] = index(succ);
+                    }
+                }
+            }
+            // depth-first search, which starts from the entry, and then
+            // from each node which has not been visited
+            int[] postOrder = new int[nodeCount];
+            int visited = 0;
+            boolean[] marks = new boolean[nodeCount];
+            int[] stack = new int[nodeCount];
+            int[] cursors = new int[nodeCount];
+            for (int start = -1; start < root; ++start) {
+                int node = start == -1 ? entry : start;
+                if (nodes[node] == null || marks[node]) {
+                    continue;
+                }
+                rootSuccs.add(0, node);
+                int top = 0;
+                stack[top++] = node;
+                marks[node] = true;
+                cursors[node] = succStart[node];
+                while (top > 0) {
+                    int n = stack[top - 1];
+                    if (cursors[n] < succStart[n + 1]) {
+                        int succ = succs[cursors[n]++];
+                        if (!marks[succ]) {
+                            marks[succ] = true;
+                            cursors[succ] = succStart[succ];
+                            stack[top++] = succ;
+                        }
+                    } else {
+                        postOrder[visited++] = n;
+                        --top;
+                    }
+                }
+            }
+            postOrder[visited++] = root;
+            rpo = new int[visited];
+            rpoNums = new int[nodeCount];
+            for (int i = 0; i < visited; ++i) {
+                rpo[i] = postOrder[visited - 1 - i];
+                rpoNums[rpo[i]] = i;
+            }
+            // predecessors
+            predStart = new int[nodeCount + 1];
+            for (int succ : succs) {
+                ++predStart[succ + 1];
+            }
+            for (int l = rootSuccs.head(0); l != -1; l = rootSuccs.next(l)) {
+                ++predStart[rootSuccs.value(l) + 1];
+            }
+            for (int i = 0; i < nodeCount; ++i) {
+                predStart[i + 1] += predStart[i];
+            }
+            preds = new int[predStart[nodeCount]];
+            int[] fill = Arrays.copyOf(predStart, nodeCount);
+            for (int i = 0; i < root; ++i) {
+                for (int k = succStart[i]; k < succStart[i + 1]; ++k) {
+                    preds[fill[succs[k]]++] = i;
+                }
+            }
+            for (int l = rootSuccs.head(0); l != -1; l = rootSuccs.next(l)) {
+                preds[fill[rootSuccs.value(l)]++] = root;
+            }
+        }
+
+        /**
+         * Computes immediate dominators by the iterative algorithm of
+         * Cooper, Harvey and Kennedy.
+         */
+        private void computeDominators() {
+            idoms = new int[nodeCount];
+            Arrays.fill(idoms, -1);
+            idoms[root] = root;
+            boolean changed;
+            do {
+                changed = false;
+                for (int i = 1; i < rpo.length; ++i) {
+                    int node = rpo[i];
+                    int idom = -1;
+                    for (int k = predStart[node]; k < predStart[node + 1]; ++k) {
+                        int pred = preds[k];
+                        if (idoms[pred] != -1) {
+                            idom = idom == -1 ? pred : intersect(pred, idom);
+                        }
+                    }
+                    if (idoms[node] != idom) {
+                        idoms[node] = idom;
+                        changed = true;
+                    }
+                }
+            } while (changed);
+        }
+
+        private int intersect(int n1, int n2) {
+            while (n1 != n2) {
+                while (rpoNums[n1] > rpoNums[n2]) {
+                    n1 = idoms[n1];
+                }
+                while (rpoNums[n2] > rpoNums[n1]) {
+                    n2 = idoms[n2];
+                }
+            }
+            return n1;
+        }
+
+        /**
+         * @return the dominance frontier of each node.
+         */
+        private Links computeFrontiers() {
+            Links frontiers = new Links(nodeCount);
+            for (int node : rpo) {
+                if (predStart[node + 1] - predStart[node] >= 2) {
+                    for (int k = predStart[node]; k < predStart[node + 1]; ++k) {
+                        for (int runner = preds[k]; runner != idoms[node];
+                             runner = idoms[runner]) {
+                            frontiers.add(runner, node);
+                        }
+                    }
+                }
+            }
+            return frontiers;
+        }
+
+        /**
+         * Places phis of each variable at the iterated dominance frontier
+         * of its definitions.
+         */
+        private void placePhis(Links frontiers) {
+            Links varDefs = new Links(vars.size());
+            for (Stmt def : defStmts) {
+                varDefs.add(getDefVar(def).getIndex(), def.getIndex());
+            }
+            for (Var param : params) {
+                varDefs.add(param.getIndex(), entry);
+            }
+            // nodes having a phi of, and nodes added to the work-list for,
+            // the variable being processed (marked by its index + 1)
+            int[] hasPhi = new int[nodeCount];
+            int[] added = new int[nodeCount];
+            int[] workList = new int[nodeCount];
+            for (int v = 0; v < vars.size(); ++v) {
+                int mark = v + 1;
+                int top = 0;
+                for (int l = varDefs.head(v); l != -1; l = varDefs.next(l)) {
+                    int node = varDefs.value(l);
+                    if (added[node] != mark) {
+                        added[node] = mark;
+                        workList[top++] = node;
+                    }
+                }
+                while (top > 0) {
+                    int node = workList[--top];
+                    for (int l = frontiers.head(node); l != -1; l = frontiers.next(l)) {
+                        int frontier = frontiers.value(l);
+                        if (hasPhi[frontier] != mark) {
+                            hasPhi[frontier] = mark;
+                            phis.add(frontier, newPhi(v));
+                            if (added[frontier] != mark) {
+                                added[frontier] = mark;
+                                workList[top++] = frontier;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        private int newPhi(int var) {
+            if (phiCount == phiVars.length) {
+                phiVars = Arrays.copyOf(phiVars, phiCount * 2);
+            }
+            phiVars[phiCount] = var;
+            return phiCount++;
+        }
+
+        private int phiName(int phi) {
+            return defStmts.length + params.length + phi;
+        }
+
+        /**
+         * Walks the dominator tree, and links each use (and each operand
+         * of phis) to the definition which reaches it, i.e., the innermost
+         * definition of the variable on the path from the root.
+         */
+        private void rename() {
+            Links children = new Links(nodeCount);
+            for (int node : rpo) {
+                if (node != root) {
+                    children.add(idoms[node], node);
+                }
+            }
+            operands = new Links(phiCount);
+            // current definition of each variable,
+            // and the log for restoring them when leaving a subtree
+            int[] current = new int[vars.size()];
+            Arrays.fill(current, -1);
+            int[] log = new int[2 * (phiCount + defStmts.length + params.length)];
+            int logSize = 0;
+            int[] logMarks = new int[nodeCount];
+            // a node is pushed when entering it, and its complement
+            // is pushed for leaving it
+            int[] stack = new int[2 * nodeCount];
+            int top = 0;
+            stack[top++] = root;
+            while (top > 0) {
+                int node = stack[--top];
+                if (node < 0) {
+                    for (int end = logMarks[~node]; logSize > end; ) {
+                        logSize -= 2;
+                        current[log[logSize]] = log[logSize + 1];
+                    }
+                    continue;
+                }
+                logMarks[node] = logSize;
+                stack[top++] = ~node;
+                for (int l = phis.head(node); l != -1; l = phis.next(l)) {
+                    int phi = phis.value(l);
+                    log[logSize++] = phiVars[phi];
+                    log[logSize++] = current[phiVars[phi]];
+                    current[phiVars[phi]] = phiName(phi);
+                }
+                if (node == entry) {
+                    for (int i = 0; i < params.length; ++i) {
+                        int v = params[i].getIndex();
+                        log[logSize++] = v;
+                        log[logSize++] = current[v];
+                        current[v] = defStmts.length + i;
+                    }
+                } else if (node < stmtCount) {
+                    Stmt stmt = nodes[node];
+                    int count = countUses(stmt);
+                    if (count > 0) {
+                        int[] names = new int[count];
+                        int i = 0;
+                        for (RValue use : stmt.getUses()) {
+                            if (use instanceof Var var &&
+                                    ConstantPropagation.canHoldInt(var)) {
+                                names[i++] = current[var.getIndex()];
+                            }
+                        }
+                        useNames[node] = names;
+                    }
+                    if (defNames[node] != -1) {
+                        int v = getDefVar(stmt).getIndex();
+                        log[logSize++] = v;
+                        log[logSize++] = current[v];
+                        current[v] = defNames[node];
+                    }
+                }
+                if (node == root) {
+                    for (int l = rootSuccs.head(0); l != -1; l = rootSuccs.next(l)) {
+                        addOperands(rootSuccs.value(l), current);
+                    }
+                } else {
+                    for (int k = succStart[node]; k < succStart[node + 1]; ++k) {
+                        addOperands(succs[k], current);
+                    }
+                }
+                for (int l = children.head(node); l != -1; l = children.next(l)) {
+                    stack[top++] = children.value(l);
+                }
+            }
+        }
+
+        private void addOperands(int succ, int[] current) {
+            for (int l = phis.head(succ); l != -1; l = phis.next(l)) {
+                int phi = phis.value(l);
+                operands.add(phi, current[phiVars[phi]]);
+            }
+        }
+
+        /**
+         * Propagates values along def-use chains until a fixed point is reached.
+         */
+        private void propagate() {
+            int defCount = defStmts.length;
+            int nameCount = phiName(phiCount);
+            Links users = new Links(nameCount);
+            for (int name = 0; name < defCount; ++name) {
+                int[] names = useNames[defStmts[name].getIndex()];
+                if (names != null) {
+                    for (int use : names) {
+                        if (use != -1) {
+                            users.add(use, name);
+                        }
+                    }
+                }
+            }
+            for (int phi = 0; phi < phiCount; ++phi) {
+                for (int l = operands.head(phi); l != -1; l = operands.next(l)) {
+                    if (operands.value(l) != -1) {
+                        users.add(operands.value(l), phiName(phi));
+                    }
+                }
+            }
+            values = new Value[nameCount];
+            Arrays.fill(values, Value.getUndef());
+            Arrays.fill(values, defCount, defCount + params.length, Value.getNAC());
+            // work-list of definitions (and phis) to be evaluated,
+            // in which each definition occurs at most once
+            int[] workList = new int[nameCount];
+            boolean[] queued = new boolean[nameCount];
+            int head = 0, size = 0;
+            for (int name = 0; name < nameCount; ++name) {
+                if (name < defCount || name >= defCount + params.length) {
+                    workList[size++] = name;
+                    queued[name] = true;
+                }
+            }
+            while (size > 0) {
+                int name = workList[head];
+                head = (head + 1) % nameCount;
+                --size;
+                queued[name] = false;
+                ++evaluations;
+                Value value = evaluate(name);
+                if (!value.equals(values[name])) {
+                    values[name] = value;
+                    for (int l = users.head(name); l != -1; l = users.next(l)) {
+                        int user = users.value(l);
+                        if (!queued[user]) {
+                            queued[user] = true;
+                            workList[(head + size) % nameCount] = user;
+                            ++size;
+                        }
+                    }
+                }
+            }
+        }
+
+        private Value evaluate(int name) {
+            if (name < defStmts.length) {
+                Stmt def = defStmts[name];
+                CPFact in = toFact(def, useNames[def.getIndex()], values);
+                return ConstantPropagation.evaluate(
+                        ((DefinitionStmt<?, ?>) def).getRValue(), in);
+            } else {
+                int phi = name - defStmts.length - params.length;
+                Value value = Value.getUndef();
+                for (int l = operands.head(phi); l != -1; l = operands.next(l)) {
+                    int operand = operands.value(l);
+                    if (operand != -1) {
+                        value = ConstantPropagation.meetValue(value, values[operand]);
+                    }
+                }
+                return value;
+            }
+        }
+    }
+
+    /**
+     * Singly linked lists of ints, one for each key, which are stored
+     * in arrays instead of allocating a collection for each key.
+     */
+    private static class Links {
+
+        private final int[] heads;
+
+        private int[] nexts = new int[16];
+
+        private int[] values = new int[16];
+
+        private int size;
+
+        private Links(int keys) {
+            heads = new int[keys];
+            Arrays.fill(heads, -1);
+        }
+
+        private void add(int key, int value) {
+            if (size == values.length) {
+                nexts = Arrays.copyOf(nexts, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            nexts[size] = heads[key];
+            values[size] = value;
+            heads[key] = size++;
+        }
+
+        /**
+         * @return the first link of given key, or -1 if the list is empty.
+         */
+        private int head(int key) {
+            return heads[key];
+        }
+
+        /**
+         * @return the link after given link, or -1 if it is the last one.
+         */
+        private int next(int link) {
+            return nexts[link];
+        }
+
+        private int value(int link) {
+            return values[link];
+        }
+    }
+
+    /**
+     * Result of sparse constant propagation, which rebuilds the in/out
+     * fact of a statement from the def-use chains of its uses.
+     */
+    private static class Result extends DataflowResult<Stmt, CPFact> {
+
+        private final CFG<Stmt> cfg;
+
+        private final int[] defNames;
+
+        private final int[][] useNames;
+
+        private final Value[] values;
+
+        private Result(CFG<Stmt> cfg, int[] defNames, int[][] useNames,
+                       Value[] values, int evaluations) {
+            this.cfg = cfg;
+            this.defNames = defNames;
+            this.useNames = useNames;
+            this.values = values;
+            setNodeVisits(evaluations);
+        }
+
+        @Override
+        public CPFact getInFact(Stmt stmt) {
+            if (!cfg.hasNode(stmt)) {
+                return null;
+            }
+            if (cfg.isEntry(stmt) || cfg.isExit(stmt)) {
+                return new CPFact();
+            }
+            return toFact(stmt, useNames[stmt.getIndex()], values);
+        }
+
+        @Override
+        public CPFact getOutFact(Stmt stmt) {
+            CPFact fact = getInFact(stmt);
+            if (fact != null && !cfg.isEntry(stmt) && !cfg.isExit(stmt) &&
+                    defNames[stmt.getIndex()] != -1) {
+                fact.update(getDefVar(stmt), values[defNames[stmt.getIndex()]]);
+            }
+            return fact;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.fact;
+
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.ir.IR;
+import pascal.taie.ir.stmt.Stmt;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Binary encoding of data-flow facts, which is used to cache data-flow
+ * results on disk (see {@link pascal.taie.analysis.CacheableAnalysis}).
+ * Elements of facts should be encoded by their indexes in the IR.
+ *
+ * @param <Fact> type of data-flow facts
+ */
+public interface FactCodec<Fact> {
+
+    void writeFact(Fact fact, DataOutput out) throws IOException;
+
+    Fact readFact(IR ir, DataInput in) throws IOException;
+
+    /**
+     * Writes the in/out facts of all nodes of given CFG, i.e.,
+     * the statements in index order, followed by the entry and the exit.
+     */
+    default void writeResult(CFG<Stmt> cfg, DataflowResult<Stmt, Fact> result,
+                             DataOutput out) throws IOException {
+        for (Stmt node : cfg.getIR().getStmts()) {
+            writeFacts(result, node, out);
+        }
+        writeFacts(result, cfg.getEntry(), out);
+        writeFacts(result, cfg.getExit(), out);
+    }
+
+    /**
+     * Reads the result written by
+     * {@link #writeResult(CFG, DataflowResult, DataOutput)}.
+     */
+    default DataflowResult<Stmt, Fact> readResult(CFG<Stmt> cfg, DataInput in)
+            throws IOException {
+        DataflowResult<Stmt, Fact> result = new DataflowResult<>();
+        for (Stmt node : cfg.getIR().getStmts()) {
+            readFacts(cfg.getIR(), result, node, in);
+        }
+        readFacts(cfg.getIR(), result, cfg.getEntry(), in);
+        readFacts(cfg.getIR(), result, cfg.getExit(), in);
+        return result;
+    }
+
+    private void writeFacts(DataflowResult<Stmt, Fact> result, Stmt node,
+                            DataOutput out) throws IOException {
+        writeNullableFact(result.getInFact(node), out);
+        writeNullableFact(result.getOutFact(node), out);
+    }
+
+    private void writeNullableFact(Fact fact, DataOutput out) throws IOException {
+        out.writeBoolean(fact != null);
+        if (fact != null) {
+            writeFact(fact, out);
+        }
+    }
+
+    private void readFacts(IR ir, DataflowResult<Stmt, Fact> result, Stmt node,
+                           DataInput in) throws IOException {
+        if (in.readBoolean()) {
+            result.setInFact(node, readFact(ir, in));
+        }
+        if (in.readBoolean()) {
+            result.setOutFact(node, readFact(ir, in));
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.solver;
+
+import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.cfg.BasicBlock;
+import pascal.taie.analysis.graph.cfg.BlockCFG;
+import pascal.taie.analysis.graph.cfg.BlockEdge;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.Edge;
+
+import javax.annotation.Nullable;
+import java.util.List;
+
+/**
+ * Lifts a node-level data-flow analysis to the basic blocks of
+ * a {@link BlockCFG}, so that solvers only keep one fact pair per block.
+ * Transferring a block transfers its nodes in sequence (along the
+ * direction of the analysis), and facts between the nodes are discarded
+ * unless they are recorded.
+ *
+ * @param <Node> type of CFG nodes
+ * @param <Fact> type of data-flow facts
+ */
+class BlockAnalysis<Node, Fact>
+        implements DataflowAnalysis<BasicBlock<Node>, Fact> {
+
+    private final DataflowAnalysis<Node, Fact> analysis;
+
+    private final BlockCFG<Node> blockCFG;
+
+    BlockAnalysis(DataflowAnalysis<Node, Fact> analysis,
+                  BlockCFG<Node> blockCFG) {
+        this.analysis = analysis;
+        this.blockCFG = blockCFG;
+    }
+
+    BlockCFG<Node> getBlockCFG() {
+        return blockCFG;
+    }
+
+    @Override
+    public boolean isForward() {
+        return analysis.isForward();
+    }
+
+    @Override
+    public Fact newBoundaryFact(CFG<BasicBlock<Node>> cfg) {
+        return analysis.newBoundaryFact(blockCFG.getCFG());
+    }
+
+    @Override
+    public Fact newInitialFact() {
+        return analysis.newInitialFact();
+    }
+
+    @Override
+    public void meetInto(Fact fact, Fact target) {
+        analysis.meetInto(fact, target);
+    }
+
+    @Override
+    public boolean transferNode(BasicBlock<Node> block, Fact in, Fact out) {
+        return isForward() ?
+                transferBlock(block, in, out, null) :
+                transferBlock(block, out, in, null);
+    }
+
+    @Override
+    public boolean needTransferEdge(Edge<BasicBlock<Node>> edge) {
+        return analysis.needTransferEdge(((BlockEdge<Node>) edge).getEdge());
+    }
+
+    @Override
+    public Fact transferEdge(Edge<BasicBlock<Node>> edge, Fact nodeFact) {
+        return analysis.transferEdge(((BlockEdge<Node>) edge).getEdge(), nodeFact);
+    }
+
+    /**
+     * Edges inside a block are always taken as feasible, since their
+     * sources have no other outgoing edges.
+     */
+    @Override
+    public boolean isConditional() {
+        return analysis.isConditional();
+    }
+
+    @Override
+    public boolean isFeasible(Edge<BasicBlock<Node>> edge, Fact nodeFact) {
+        return analysis.isFeasible(((BlockEdge<Node>) edge).getEdge(), nodeFact);
+    }
+
+    /**
+     * Transfers the nodes of given block in sequence along the direction
+     * of the analysis.
+     *
+     * @param flowIn  fact flowing into the block
+     * @param flowOut fact flowing out of the block, which receives
+     *                the result of the last node
+     * @param record  if not null, the facts of every node in the block
+     *                are stored in it
+     * @return true if the fact flowing out of the block changed,
+     * otherwise false.
+     */
+    boolean transferBlock(BasicBlock<Node> block, Fact flowIn, Fact flowOut,
+                          @Nullable DataflowResult<Node, Fact> record) {
+        boolean forward = isForward();
+        CFG<Node> cfg = blockCFG.getCFG();
+        List<Node> nodes = block.getNodes();
+        int size = nodes.size();
+        Fact in = flowIn;
+        boolean changed = false;
+        for (int i = 0; i < size; ++i) {
+            Node node = nodes.get(forward ? i : size - 1 - i);
+            if (i > 0) {
+                // inner nodes have a single incoming edge along the flow
+                Edge<Node> edge = (forward ?
+                        cfg.getInEdgesOf(node) : cfg.getOutEdgesOf(node))
+                        .iterator().next();
+                if (analysis.needTransferEdge(edge)) {
+                    in = analysis.transferEdge(edge, in);
+                }
+            }
+            Fact out = i == size - 1 ? flowOut : analysis.newInitialFact();
+            changed = forward ?
+                    analysis.transferNode(node, in, out) :
+                    analysis.transferNode(node, out, in);
+            if (record != null) {
+                if (forward) {
+                    record.setInFact(node, in);
+                    record.setOutFact(node, out);
+                } else {
+                    record.setOutFact(node, in);
+                    record.setInFact(node, out);
+                }
+            }
+            in = out;
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.solver;
+
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.cfg.BasicBlock;
+import pascal.taie.analysis.graph.cfg.BlockCFG;
+import pascal.taie.analysis.graph.cfg.Edge;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Data-flow result of a block-level solving, which only keeps the facts
+ * of each basic block. The facts of the nodes inside a block are
+ * recomputed on demand by transferring the block again from the fact
+ * flowing into it.
+ * <p>
+ * The facts of the most recently replayed block are cached, as clients
+ * usually query the nodes of a block one after another.
+ * This result is read-only, i.e., its facts cannot be set.
+ *
+ * @param <Node> type of CFG nodes
+ * @param <Fact> type of data-flow facts
+ */
+class CompactResult<Node, Fact> extends DataflowResult<Node, Fact> {
+
+    private final BlockAnalysis<Node, Fact> analysis;
+
+    private final DataflowResult<BasicBlock<Node>, Fact> blockResult;
+
+    /**
+     * Blocks reached by feasible edges if the analysis is conditional,
+     * otherwise null. The nodes of other blocks keep initial facts.
+     */
+    private final Set<BasicBlock<Node>> reached;
+
+    /**
+     * The most recently replayed block.
+     */
+    private BasicBlock<Node> cachedBlock;
+
+    /**
+     * Facts of the nodes in {@link #cachedBlock}.
+     */
+    private DataflowResult<Node, Fact> cachedFacts;
+
+    CompactResult(BlockAnalysis<Node, Fact> analysis,
+                  DataflowResult<BasicBlock<Node>, Fact> blockResult) {
+        this.analysis = analysis;
+        this.blockResult = blockResult;
+        this.reached = analysis.isConditional() ? computeReached() : null;
+        setNodeVisits(blockResult.getNodeVisits());
+    }
+
+    /**
+     * Recomputes the blocks reached by the solver. As feasibility is
+     * monotone, these are the blocks reachable from the boundary block
+     * via the edges which are feasible under the final facts.
+     */
+    private Set<BasicBlock<Node>> computeReached() {
+        BlockCFG<Node> blockCFG = analysis.getBlockCFG();
+        boolean forward = analysis.isForward();
+        BasicBlock<Node> boundary = forward ?
+                blockCFG.getEntry() : blockCFG.getExit();
+        Set<BasicBlock<Node>> reached = Sets.newSet(blockCFG.getNumberOfNodes());
+        Queue<BasicBlock<Node>> queue = new ArrayDeque<>();
+        reached.add(boundary);
+        queue.add(boundary);
+        while (!queue.isEmpty()) {
+            BasicBlock<Node> block = queue.poll();
+            Fact fact = forward ?
+                    blockResult.getOutFact(block) : blockResult.getInFact(block);
+            for (Edge<BasicBlock<Node>> edge : forward ?
+                    blockCFG.getOutEdgesOf(block) : blockCFG.getInEdgesOf(block)) {
+                BasicBlock<Node> succ = forward ? edge.getTarget() : edge.getSource();
+                if (analysis.isFeasible(edge, fact) && reached.add(succ)) {
+                    queue.add(succ);
+                }
+            }
+        }
+        return reached;
+    }
+
+    @Override
+    public synchronized Fact getInFact(Node node) {
+        BasicBlock<Node> block = analysis.getBlockCFG().getBlockOf(node);
+        return block != null ? getFacts(block).getInFact(node) : null;
+    }
+
+    @Override
+    public synchronized Fact getOutFact(Node node) {
+        BasicBlock<Node> block = analysis.getBlockCFG().getBlockOf(node);
+        return block != null ? getFacts(block).getOutFact(node) : null;
+    }
+
+    /**
+     * @return the facts of the nodes in given block.
+     */
+    private DataflowResult<Node, Fact> getFacts(BasicBlock<Node> block) {
+        if (block != cachedBlock) {
+            cachedFacts = replay(block);
+            cachedBlock = block;
+        }
+        return cachedFacts;
+    }
+
+    /**
+     * Recomputes the facts of the nodes in given block.
+     */
+    private DataflowResult<Node, Fact> replay(BasicBlock<Node> block) {
+        DataflowResult<Node, Fact> facts = new DataflowResult<>();
+        Fact in = blockResult.getInFact(block);
+        Fact out = blockResult.getOutFact(block);
+        BlockCFG<Node> blockCFG = analysis.getBlockCFG();
+        boolean forward = analysis.isForward();
+        if (reached != null && !reached.contains(block)) {
+            for (Node node : block.getNodes()) {
+                facts.setInFact(node, analysis.newInitialFact());
+                facts.setOutFact(node, analysis.newInitialFact());
+            }
+        } else if (forward ? blockCFG.isEntry(block) : blockCFG.isExit(block)) {
+            // the boundary block only contains the boundary node,
+            // which is never transferred
+            facts.setInFact(block.getFirst(), in);
+            facts.setOutFact(block.getFirst(), out);
+        } else if (forward) {
+            analysis.transferBlock(block, in,
+                    analysis.newInitialFact(), facts);
+        } else {
+            analysis.transferBlock(block, out,
+                    analysis.newInitialFact(), facts);
+        }
+        return facts;
+    }
+
+    @Override
+    public void setInFact(Node node, Fact fact) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setOutFact(Node node, Fact fact) {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.solver;
+
+import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.Edge;
+
+/**
+ * Decorates a data-flow analysis to count the calls of its transfer
+ * and meet functions into {@link SolverMetrics}. Only used when metrics
+ * are enabled, so that solvers of other analyses are not instrumented.
+ * <p>
+ * Counting stops after the solver finishes, thus the facts recomputed
+ * on demand by compact results are not counted.
+ *
+ * @param <Node> type of CFG nodes
+ * @param <Fact> type of data-flow facts
+ */
+class MeteredAnalysis<Node, Fact> implements DataflowAnalysis<Node, Fact> {
+
+    private final DataflowAnalysis<Node, Fact> analysis;
+
+    private final SolverMetrics metrics;
+
+    private boolean recording = true;
+
+    MeteredAnalysis(DataflowAnalysis<Node, Fact> analysis,
+                    SolverMetrics metrics) {
+        this.analysis = analysis;
+        this.metrics = metrics;
+    }
+
+    void stopRecording() {
+        recording = false;
+    }
+
+    @Override
+    public boolean isForward() {
+        return analysis.isForward();
+    }
+
+    @Override
+    public Fact newBoundaryFact(CFG<Node> cfg) {
+        return analysis.newBoundaryFact(cfg);
+    }
+
+    @Override
+    public Fact newInitialFact() {
+        return analysis.newInitialFact();
+    }
+
+    @Override
+    public void meetInto(Fact fact, Fact target) {
+        if (recording) {
+            metrics.countMeet();
+        }
+        analysis.meetInto(fact, target);
+    }
+
+    @Override
+    public boolean transferNode(Node node, Fact in, Fact out) {
+        boolean changed = analysis.transferNode(node, in, out);
+        if (recording) {
+            metrics.countTransfer(changed);
+        }
+        return changed;
+    }
+
+    @Override
+    public boolean needTransferEdge(Edge<Node> edge) {
+        return analysis.needTransferEdge(edge);
+    }
+
+    @Override
+    public Fact transferEdge(Edge<Node> edge, Fact nodeFact) {
+        return analysis.transferEdge(edge, nodeFact);
+    }
+
+    @Override
+    public boolean isConditional() {
+        return analysis.isConditional();
+    }
+
+    @Override
+    public boolean isFeasible(Edge<Node> edge, Fact nodeFact) {
+        return analysis.isFeasible(edge, nodeFact);
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.solver;
+
+import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Numbers the nodes of a CFG by a depth-first traversal from its entry,
+ * in reverse postorder or postorder.
+ * <p>
+ * Reverse postorder visits a node before its successors (except along
+ * back edges), thus it is the preferable order for forward analyses;
+ * symmetrically, postorder is preferable for backward analyses.
+ * Nodes that are unreachable from the entry are numbered after
+ * (or before, in reverse postorder) the reachable ones.
+ *
+ * @param <Node> type of CFG nodes
+ */
+class NodeOrder<Node> {
+
+    private final List<Node> nodes;
+
+    private final Map<Node, Integer> numbers;
+
+    private NodeOrder(List<Node> nodes) {
+        this.nodes = nodes;
+        this.numbers = Maps.newMap(nodes.size());
+        for (int i = 0; i < nodes.size(); ++i) {
+            numbers.put(nodes.get(i), i);
+        }
+    }
+
+    /**
+     * @return the reverse postorder of given CFG.
+     */
+    static <Node> NodeOrder<Node> reversePostorder(CFG<Node> cfg) {
+        List<Node> postorder = computePostorder(cfg);
+        Collections.reverse(postorder);
+        return new NodeOrder<>(postorder);
+    }
+
+    /**
+     * @return the postorder of given CFG.
+     */
+    static <Node> NodeOrder<Node> postorder(CFG<Node> cfg) {
+        return new NodeOrder<>(computePostorder(cfg));
+    }
+
+    private static <Node> List<Node> computePostorder(CFG<Node> cfg) {
+        List<Node> postorder = new ArrayList<>(cfg.getNumberOfNodes());
+        Set<Node> visited = Sets.newSet(cfg.getNumberOfNodes());
+        dfs(cfg, cfg.getEntry(), visited, postorder);
+        for (Node node : cfg) {
+            if (!visited.contains(node)) {
+                dfs(cfg, node, visited, postorder);
+            }
+        }
+        return postorder;
+    }
+
+    /**
+     * Iterative depth-first traversal, which appends nodes to postorder
+     * when all their successors have been traversed.
+     * Recursion is avoided as CFGs of large methods may be very deep.
+     */
+    private static <Node> void dfs(CFG<Node> cfg, Node root,
+                                   Set<Node> visited,
+                                   List<Node> postorder) {
+        Deque<Node> nodeStack = new ArrayDeque<>();
+        Deque<Iterator<Node>> succStack = new ArrayDeque<>();
+        visited.add(root);
+        nodeStack.push(root);
+        succStack.push(cfg.getSuccsOf(root).iterator());
+        while (!nodeStack.isEmpty()) {
+            Iterator<Node> succs = succStack.peek();
+            if (succs.hasNext()) {
+                Node succ = succs.next();
+                if (!visited.contains(succ)) {
+                    visited.add(succ);
+                    nodeStack.push(succ);
+                    succStack.push(cfg.getSuccsOf(succ).iterator());
+                }
+            } else {
+                postorder.add(nodeStack.pop());
+                succStack.pop();
+            }
+        }
+    }
+
+    /**
+     * @return the number of nodes in this order.
+     */
+    int size() {
+        return nodes.size();
+    }
+
+    /**
+     * @return the node with given number.
+     */
+    Node getNode(int number) {
+        return nodes.get(number);
+    }
+
+    /**
+     * @return the number of given node.
+     */
+    int getNumber(Node node) {
+        return numbers.get(node);
+    }
+}
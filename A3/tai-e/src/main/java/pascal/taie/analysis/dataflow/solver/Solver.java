@@ -24,11 +24,21 @@ package pascal.taie.analysis.dataflow.solver;
 
 import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.graph.cfg.BasicBlock;
+import pascal.taie.analysis.graph.cfg.BlockCFG;
 import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.Edge;
+
+import javax.annotation.Nullable;
+import java.util.Set;
 
 /**
  * Base class for data-flow analysis solver, which provides common
  * functionalities for different solver implementations.
+ * <p>
+ * Solvers are direction-agnostic: they work on a {@link FlowGraph},
+ * i.e., a view of the CFG along the direction of the analysis,
+ * so that forward and backward analyses are solved by the same code.
  *
  * @param <Node> type of CFG nodes
  * @param <Fact> type of data-flow facts
@@ -56,61 +66,137 @@ public abstract class Solver<Node, Fact> {
      * @return the analysis result
      */
     public DataflowResult<Node, Fact> solve(CFG<Node> cfg) {
-        DataflowResult<Node, Fact> result = initialize(cfg);
-        doSolve(cfg, result);
+        return solve(cfg, false);
+    }
+
+    /**
+     * Starts this solver on the given CFG.
+     *
+     * @param cfg     control-flow graph where the analysis is performed on
+     * @param compact if true, the analysis is solved on the basic blocks
+     *                of the CFG, so that only one fact pair is kept per
+     *                block, and the facts of the nodes inside blocks are
+     *                recomputed on demand, which saves memory and meets
+     * @return the analysis result
+     */
+    public DataflowResult<Node, Fact> solve(CFG<Node> cfg, boolean compact) {
+        return solve(cfg, compact, null);
+    }
+
+    /**
+     * Starts this solver on the given CFG, and records the work of
+     * the solver into given metrics.
+     *
+     * @param cfg     control-flow graph where the analysis is performed on
+     * @param compact see {@link #solve(CFG, boolean)}
+     * @param metrics metrics to record, or null if metrics are disabled,
+     *                in which case the solver is not instrumented
+     * @return the analysis result
+     */
+    public DataflowResult<Node, Fact> solve(CFG<Node> cfg, boolean compact,
+                                            @Nullable SolverMetrics metrics) {
+        if (metrics != null) {
+            MeteredAnalysis<Node, Fact> metered =
+                    new MeteredAnalysis<>(analysis, metrics);
+            long start = System.nanoTime();
+            DataflowResult<Node, Fact> result =
+                    makeSolver(metered).solve(cfg, compact);
+            metrics.addTime(System.nanoTime() - start);
+            metrics.addIterations(result.getNodeVisits());
+            metered.stopRecording();
+            return result;
+        }
+        if (compact) {
+            BlockAnalysis<Node, Fact> blockAnalysis =
+                    new BlockAnalysis<>(analysis, new BlockCFG<>(cfg));
+            DataflowResult<BasicBlock<Node>, Fact> blockResult =
+                    makeSolver(blockAnalysis).solve(blockAnalysis.getBlockCFG());
+            return new CompactResult<>(blockAnalysis, blockResult);
+        }
+        FlowGraph<Node> graph = FlowGraph.of(cfg, analysis.isForward());
+        DataflowResult<Node, Fact> result = initialize(graph);
+        doSolve(graph, result);
         return result;
     }
 
     /**
-     * Creates and initializes a new data-flow result for given CFG.
+     * Creates and initializes a new data-flow result for given flow graph.
+     * The fact flowing out of the boundary node is the boundary fact,
+     * and all other facts are initial facts.
      *
      * @return the initialized data-flow result
      */
-    private DataflowResult<Node, Fact> initialize(CFG<Node> cfg) {
+    private DataflowResult<Node, Fact> initialize(FlowGraph<Node> graph) {
         DataflowResult<Node, Fact> result = new DataflowResult<>();
-        if (analysis.isForward()) {
-            initializeForward(cfg, result);
-        } else {
-            initializeBackward(cfg, result);
+        CFG<Node> cfg = graph.getCFG();
+        for (Node node : cfg) {
+            graph.setInFact(result, node, analysis.newInitialFact());
+            graph.setOutFact(result, node, graph.isBoundary(node) ?
+                    analysis.newBoundaryFact(cfg) : analysis.newInitialFact());
         }
         return result;
     }
 
-    protected void initializeForward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
-        // TODO - finish me
-        result.setOutFact(cfg.getEntry(), analysis.newBoundaryFact(cfg));
-        result.setInFact(cfg.getEntry(), analysis.newInitialFact());
-        for (Node node : cfg){
-            if(!cfg.isEntry(node)){
-                result.setInFact(node, analysis.newInitialFact());
-                result.setOutFact(node, analysis.newInitialFact());
-            }
-        }
-    }
+    /**
+     * Solves the data-flow problem for given flow graph.
+     */
+    protected abstract void doSolve(FlowGraph<Node> graph,
+                                    DataflowResult<Node, Fact> result);
 
-    protected void initializeBackward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
-        // TODO - finish me
-        result.setInFact(cfg.getExit(), analysis.newBoundaryFact(cfg));//set the exit node fact as the boundary fact(empty)
-        for (Node node : cfg){
-            if (!cfg.isExit(node)){
-                result.setInFact(node, analysis.newInitialFact());//set the initial fact for non-boundary nodes(empty)
-                result.setOutFact(node, analysis.newInitialFact());//due to function meetInto, the out fact is also set to the initial fact
+    /**
+     * Visits a node, i.e., meets the facts flowing into given node
+     * (applying edge transfer if needed), and then transfers the node.
+     *
+     * @return true if the fact flowing out of the node changed,
+     * otherwise false.
+     */
+    protected boolean visit(FlowGraph<Node> graph,
+                            DataflowResult<Node, Fact> result, Node node) {
+        Fact in = graph.getInFact(result, node);
+        for (Edge<Node> edge : graph.getInEdgesOf(node)) {
+            Fact predFact = graph.getOutFact(result, graph.getSourceOf(edge));
+            if (analysis.needTransferEdge(edge)) {
+                predFact = analysis.transferEdge(edge, predFact);
             }
+            analysis.meetInto(predFact, in);
         }
+        return analysis.transferNode(node,
+                result.getInFact(node), result.getOutFact(node));
     }
 
     /**
-     * Solves the data-flow problem for given CFG.
+     * Visits a node of a conditional analysis, which is like
+     * {@link #visit(FlowGraph, DataflowResult, Object)}, except that only
+     * the facts flowing along feasible edges from reached nodes are met,
+     * and the node is only transferred if it is reached by such an edge.
+     *
+     * @param reached the nodes reached so far, which is updated
+     *                when given node is reached
+     * @return true if the fact flowing out of the node changed, or the
+     * node is reached for the first time, otherwise false.
      */
-    private void doSolve(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
-        if (analysis.isForward()) {
-            doSolveForward(cfg, result);
-        } else {
-            doSolveBackward(cfg, result);
+    protected boolean visitConditionally(FlowGraph<Node> graph,
+                                         DataflowResult<Node, Fact> result,
+                                         Node node, Set<Node> reached) {
+        Fact in = graph.getInFact(result, node);
+        boolean feasible = false;
+        for (Edge<Node> edge : graph.getInEdgesOf(node)) {
+            Node pred = graph.getSourceOf(edge);
+            Fact predFact = graph.getOutFact(result, pred);
+            if (!reached.contains(pred) || !analysis.isFeasible(edge, predFact)) {
+                continue;
+            }
+            feasible = true;
+            if (analysis.needTransferEdge(edge)) {
+                predFact = analysis.transferEdge(edge, predFact);
+            }
+            analysis.meetInto(predFact, in);
         }
+        if (!feasible) {
+            return false;
+        }
+        boolean changed = analysis.transferNode(node,
+                result.getInFact(node), result.getOutFact(node));
+        return reached.add(node) || changed;
     }
-
-    protected abstract void doSolveForward(CFG<Node> cfg, DataflowResult<Node, Fact> result);
-
-    protected abstract void doSolveBackward(CFG<Node> cfg, DataflowResult<Node, Fact> result);
 }
@@ -0,0 +1,108 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.solver;
+
+/**
+ * Counters of a data-flow solver on one method, i.e., the number of
+ * iterations (nodes taken from the work-list), calls of transfer and
+ * meet functions, transfers that changed facts, and the wall time of
+ * solving.
+ * <p>
+ * Metrics are only recorded when option "metrics" of the analysis
+ * is enabled; otherwise, solvers run without any instrumentation.
+ * The recorded metrics are stored in the IR (or in the World for
+ * inter-procedural analyses) with key {@link #getKey(String)},
+ * and exported by {@link pascal.taie.analysis.ResultProcessor}.
+ */
+public class SolverMetrics {
+
+    private long iterations;
+
+    private long transfers;
+
+    private long meets;
+
+    private long changes;
+
+    private long time;
+
+    /**
+     * @return the key of the metrics of given analysis.
+     */
+    public static String getKey(String analysisId) {
+        return analysisId + ".metrics";
+    }
+
+    public long getIterations() {
+        return iterations;
+    }
+
+    public long getTransfers() {
+        return transfers;
+    }
+
+    public long getMeets() {
+        return meets;
+    }
+
+    public long getChanges() {
+        return changes;
+    }
+
+    /**
+     * @return the wall time of solving in nanoseconds.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    public void addIterations(long iterations) {
+        this.iterations += iterations;
+    }
+
+    public void countTransfer(boolean changed) {
+        ++transfers;
+        if (changed) {
+            ++changes;
+        }
+    }
+
+    public void countMeet() {
+        ++meets;
+    }
+
+    public void addTime(long time) {
+        this.time += time;
+    }
+
+    @Override
+    public String toString() {
+        return "SolverMetrics{" +
+                "iterations=" + iterations +
+                ", transfers=" + transfers +
+                ", meets=" + meets +
+                ", changes=" + changes +
+                ", time=" + time +
+                '}';
+    }
+}
@@ -24,11 +24,21 @@ package pascal.taie.analysis.dataflow.solver;
 
 import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
-import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.util.collection.Sets;
 
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.BitSet;
+import java.util.Set;
 
+/**
+ * Work-list solver which picks the pending node that comes first in
+ * reverse postorder (for forward analyses) or postorder (for backward
+ * analyses), so that the facts of a node are usually computed after
+ * the facts of the nodes they depend on. The work-list is a {@link BitSet}
+ * indexed by the order of nodes, thus a node is never queued twice.
+ * <p>
+ * As the solver works on {@link FlowGraph}, it handles both forward and
+ * backward analyses.
+ */
 class WorkListSolver<Node, Fact> extends Solver<Node, Fact> {
 
     WorkListSolver(DataflowAnalysis<Node, Fact> analysis) {
@@ -36,48 +46,32 @@ class WorkListSolver<Node, Fact> extends Solver<Node, Fact> {
     }
 
     @Override
-    protected void doSolveForward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
-        // TODO - finish me
-        // worklist algorithm(forward)
-        Queue<Node> worklist = new LinkedList<Node>();
-        worklist.addAll(cfg.getNodes());
-        while(!worklist.isEmpty()){
-            Node current = worklist.poll();
-            Fact inFact = result.getInFact(current);
-            Fact outFact = result.getOutFact(current);
-            for(Node pred: cfg.getPredsOf(current)){//in[B] = meet(out[P],P is pred of B)
-                analysis.meetInto(result.getOutFact(pred), inFact);
-            }
-            boolean flag = analysis.transferNode(current, inFact, outFact);
-            if(flag){
-                for(Node succ: cfg.getSuccsOf(current)){
-                    worklist.add(succ);
-                }
-            }
+    protected void doSolve(FlowGraph<Node> graph, DataflowResult<Node, Fact> result) {
+        NodeOrder<Node> order = graph.getOrder();
+        BitSet workList = new BitSet(order.size());
+        workList.set(0, order.size());
+        // the boundary fact is never changed
+        workList.clear(order.getNumber(graph.getBoundary()));
+        // nodes reached by feasible edges, only tracked for conditional analyses
+        Set<Node> reached = null;
+        if (analysis.isConditional()) {
+            reached = Sets.newSet(order.size());
+            reached.add(graph.getBoundary());
         }
-    }
-
-    @Override
-    protected void doSolveBackward(CFG<Node> cfg, DataflowResult<Node, Fact> result) {
-        // TODO - finish me
-        // worklist algorithm(backward)
-        Queue<Node> worklist = new LinkedList<Node>();
-        worklist.addAll(cfg.getNodes());
-        while(!worklist.isEmpty()){
-            Node current = worklist.poll();
-            Fact inFact = result.getInFact(current);
-            Fact outFact = result.getOutFact(current);
-            //outFact[node] = \cup_{s a successor of node} inFact[s]
-            //inFact[node] = use[node] \cup (outFact[node] - def[node])
-            for(Node succ: cfg.getSuccsOf(current)){
-                analysis.meetInto(result.getInFact(succ), outFact);
-            }
-            boolean flag = analysis.transferNode(current, inFact, outFact);
-            if(flag) {
-                for (Node pred : cfg.getPredsOf(current)) {
-                    worklist.add(pred);
+        int visits = 0;
+        for (int i = workList.nextSetBit(0); i >= 0; i = workList.nextSetBit(0)) {
+            workList.clear(i);
+            ++visits;
+            Node node = order.getNode(i);
+            boolean changed = reached == null ?
+                    visit(graph, result, node) :
+                    visitConditionally(graph, result, node, reached);
+            if (changed) {
+                for (Node succ : graph.getSuccsOf(node)) {
+                    workList.set(order.getNumber(succ));
                 }
             }
         }
+        result.setNodeVisits(visits);
     }
 }
@@ -0,0 +1,77 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.cfg;
+
+import java.util.List;
+
+/**
+ * Represents basic blocks, i.e., maximal sequences of CFG nodes that
+ * are always executed one after another.
+ *
+ * @param <N> type of CFG nodes.
+ * @see BlockCFG
+ */
+public class BasicBlock<N> {
+
+    private final int index;
+
+    private final List<N> nodes;
+
+    BasicBlock(int index, List<N> nodes) {
+        this.index = index;
+        this.nodes = List.copyOf(nodes);
+    }
+
+    /**
+     * @return the index of this block in its {@link BlockCFG}.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the nodes of this block in execution order.
+     */
+    public List<N> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the first node of this block.
+     */
+    public N getFirst() {
+        return nodes.get(0);
+    }
+
+    /**
+     * @return the last node of this block.
+     */
+    public N getLast() {
+        return nodes.get(nodes.size() - 1);
+    }
+
+    @Override
+    public String toString() {
+        return "B" + index + nodes;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.cfg;
+
+import pascal.taie.util.collection.Maps;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Basic-block view of a CFG. The entry and exit of the CFG form their
+ * own blocks, which are the entry and exit of this CFG.
+ * <p>
+ * A node starts a new block unless its only incoming edge comes from
+ * a node (other than the entry) with no other outgoing edge, thus every
+ * block edge corresponds to exactly one CFG edge, and the facts of the
+ * nodes inside a block can be computed by transferring them in sequence.
+ *
+ * @param <N> type of CFG nodes.
+ */
+public class BlockCFG<N> extends AbstractCFG<BasicBlock<N>> {
+
+    private final CFG<N> cfg;
+
+    private final Map<N, BasicBlock<N>> blockOf;
+
+    public BlockCFG(CFG<N> cfg) {
+        super(cfg.getIR());
+        this.cfg = cfg;
+        this.blockOf = Maps.newMap(cfg.getNumberOfNodes());
+        build();
+    }
+
+    /**
+     * @return the CFG this block CFG is built from.
+     */
+    public CFG<N> getCFG() {
+        return cfg;
+    }
+
+    /**
+     * @return the block containing the given node, or null if the node
+     * is not in the underlying CFG.
+     */
+    public BasicBlock<N> getBlockOf(N node) {
+        return blockOf.get(node);
+    }
+
+    private void build() {
+        // discover blocks from the entry, so that block indexes follow
+        // the control flow
+        Deque<N> leaders = new ArrayDeque<>();
+        leaders.add(cfg.getEntry());
+        while (!leaders.isEmpty()) {
+            N leader = leaders.poll();
+            if (!blockOf.containsKey(leader)) {
+                BasicBlock<N> block = newBlock(leader);
+                cfg.getSuccsOf(block.getLast()).forEach(leaders::add);
+            }
+        }
+        // blocks of unreachable code
+        for (N node : cfg) {
+            if (!blockOf.containsKey(node) && isLeader(node)) {
+                newBlock(node);
+            }
+        }
+        // nodes on cycles which cannot be entered from other nodes
+        // do not have a leader, thus pick one for each such cycle
+        for (N node : cfg) {
+            if (!blockOf.containsKey(node)) {
+                newBlock(node);
+            }
+        }
+        for (BasicBlock<N> block : getNodes()) {
+            for (Edge<N> edge : cfg.getOutEdgesOf(block.getLast())) {
+                addEdge(new BlockEdge<>(edge,
+                        block, blockOf.get(edge.getTarget())));
+            }
+        }
+        setEntry(blockOf.get(cfg.getEntry()));
+        setExit(blockOf.get(cfg.getExit()));
+    }
+
+    /**
+     * @return true if the given node must start a block.
+     */
+    private boolean isLeader(N node) {
+        if (cfg.isEntry(node) || cfg.isExit(node)) {
+            return true;
+        }
+        Set<Edge<N>> inEdges = cfg.getInEdgesOf(node);
+        if (inEdges.size() != 1) {
+            return true;
+        }
+        N pred = inEdges.iterator().next().getSource();
+        return cfg.isEntry(pred) || cfg.getOutEdgesOf(pred).size() != 1;
+    }
+
+    /**
+     * Creates the block starting at the given node and adds it to this CFG.
+     */
+    private BasicBlock<N> newBlock(N leader) {
+        List<N> nodes = new ArrayList<>();
+        N node = leader;
+        while (true) {
+            nodes.add(node);
+            Set<Edge<N>> outEdges = cfg.getOutEdgesOf(node);
+            if (cfg.isEntry(node) || outEdges.size() != 1) {
+                break;
+            }
+            N succ = outEdges.iterator().next().getTarget();
+            if (succ == leader || isLeader(succ)) {
+                break;
+            }
+            node = succ;
+        }
+        BasicBlock<N> block = new BasicBlock<>(getNodes().size(), nodes);
+        nodes.forEach(n -> blockOf.put(n, block));
+        addNode(block);
+        return block;
+    }
+}
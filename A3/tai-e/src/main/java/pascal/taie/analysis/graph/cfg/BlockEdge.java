@@ -0,0 +1,83 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.cfg;
+
+import pascal.taie.language.type.ClassType;
+
+import java.util.Set;
+
+/**
+ * Represents edges between basic blocks. Each such edge corresponds to
+ * the CFG edge from the last node of its source block to the first node
+ * of its target block.
+ *
+ * @param <N> type of CFG nodes.
+ */
+public class BlockEdge<N> extends Edge<BasicBlock<N>> {
+
+    private final Edge<N> edge;
+
+    BlockEdge(Edge<N> edge, BasicBlock<N> source, BasicBlock<N> target) {
+        super(edge.getKind(), source, target);
+        this.edge = edge;
+    }
+
+    /**
+     * @return the CFG edge represented by this block edge.
+     */
+    public Edge<N> getEdge() {
+        return edge;
+    }
+
+    @Override
+    public int getCaseValue() {
+        return edge.getCaseValue();
+    }
+
+    @Override
+    public Set<ClassType> getExceptions() {
+        return edge.getExceptions();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return edge.equals(((BlockEdge<?>) o).edge);
+    }
+
+    @Override
+    public int hashCode() {
+        return edge.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "[" + getKind() + "]: B" + source.getIndex()
+                + " -> B" + target.getIndex();
+    }
+}
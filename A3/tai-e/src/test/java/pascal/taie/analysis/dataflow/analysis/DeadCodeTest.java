@@ -34,6 +34,41 @@ public class DeadCodeTest {
                 "-a", "constprop=edge-refine:false");
     }
 
+    void testConditionalDCD(String inputClass) {
+        Tests.test(inputClass, "src/test/resources/dataflow/deadcode/",
+                DeadCodeDetection.ID,
+                "-a", "livevar=strongly:false",
+                "-a", "constprop=edge-refine:false;conditional:true");
+    }
+
+    /**
+     * Solves live variables and constant propagation on basic blocks,
+     * which must yield the same results as solving on statements.
+     */
+    void testCompactDCD(String inputClass, String constPropOptions) {
+        Tests.test(inputClass, "src/test/resources/dataflow/deadcode/",
+                DeadCodeDetection.ID,
+                "-a", "livevar=strongly:false;compact:true",
+                "-a", "constprop=edge-refine:false;compact:true" + constPropOptions);
+    }
+
+    void testSparseDCD(String inputClass) {
+        Tests.test(inputClass, "src/test/resources/dataflow/deadcode/",
+                DeadCodeDetection.ID, "constprop:sparse",
+                "-a", "livevar=strongly:false");
+    }
+
+    void testIntervalDCD(String inputClass) {
+        Tests.test(inputClass, "src/test/resources/dataflow/deadcode/",
+                DeadCodeDetection.ID, "constprop:interval",
+                "-a", "livevar=strongly:false");
+    }
+
+    void testFusedDCD(String inputClass) {
+        Tests.test(inputClass, "src/test/resources/dataflow/deadcode/",
+                DeadCodeDetection.ID, "fused:true");
+    }
+
     @Test
     public void testControlFlowUnreachable() {
         testDCD("ControlFlowUnreachable");
@@ -58,4 +93,89 @@ public class DeadCodeTest {
     public void testLoops() {
         testDCD("Loops");
     }
+
+    /**
+     * The second branch is only unreachable if the value of the
+     * unreachable branch before it does not flow to the join,
+     * which requires conditional constant propagation.
+     */
+    @Test
+    public void testConditionalBranch() {
+        testConditionalDCD("ConditionalBranch");
+    }
+
+    @Test
+    public void testConditionalUnreachableIfBranch() {
+        testConditionalDCD("UnreachableIfBranch");
+    }
+
+    @Test
+    public void testCompactControlFlowUnreachable() {
+        testCompactDCD("ControlFlowUnreachable", "");
+    }
+
+    @Test
+    public void testCompactUnreachableIfBranch() {
+        testCompactDCD("UnreachableIfBranch", "");
+    }
+
+    @Test
+    public void testCompactUnreachableSwitchBranch() {
+        testCompactDCD("UnreachableSwitchBranch", "");
+    }
+
+    @Test
+    public void testCompactDeadAssignment() {
+        testCompactDCD("DeadAssignment", "");
+    }
+
+    @Test
+    public void testCompactLoops() {
+        testCompactDCD("Loops", "");
+    }
+
+    @Test
+    public void testCompactConditionalBranch() {
+        testCompactDCD("ConditionalBranch", ";conditional:true");
+    }
+
+    @Test
+    public void testSparseUnreachableIfBranch() {
+        testSparseDCD("UnreachableIfBranch");
+    }
+
+    @Test
+    public void testSparseUnreachableSwitchBranch() {
+        testSparseDCD("UnreachableSwitchBranch");
+    }
+
+    @Test
+    public void testSparseLoops() {
+        testSparseDCD("Loops");
+    }
+
+    @Test
+    public void testFusedDeadAssignment() {
+        testFusedDCD("DeadAssignment");
+    }
+
+    @Test
+    public void testFusedUnreachableSwitchBranch() {
+        testFusedDCD("UnreachableSwitchBranch");
+    }
+
+    @Test
+    public void testIntervalUnreachableIfBranch() {
+        testIntervalDCD("UnreachableIfBranch");
+    }
+
+    /**
+     * The branch in the loop is guarded by a range of the loop counter,
+     * thus it can be pruned by interval analysis (whose widening makes
+     * the loop terminate), but not by constant propagation.
+     */
+    @Test
+    public void testIntervalLoopCounter() {
+        testIntervalDCD("LoopCounter");
+    }
 }
@@ -0,0 +1,269 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.analysis.constprop;
+
+import org.junit.Test;
+import pascal.taie.ir.exp.Var;
+import pascal.taie.language.type.PrimitiveType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CPFactTest {
+
+    /**
+     * Creates a variable of given index. Variables created by different
+     * calls are different, even if their indexes are the same (like
+     * variables of different methods), thus they collide in the trie.
+     */
+    private static Var newVar(int index) {
+        return new Var(null, "v" + index, PrimitiveType.INT, index);
+    }
+
+    private static List<Var> newVars(int n) {
+        return IntStream.range(0, n).mapToObj(CPFactTest::newVar).toList();
+    }
+
+    private static Value c(int i) {
+        return Value.makeConstant(i);
+    }
+
+    private static Value meet(Value v1, Value v2) {
+        if (v1.isUndef()) {
+            return v2;
+        } else if (v2.isUndef() || v1.equals(v2)) {
+            return v1;
+        } else {
+            return Value.getNAC();
+        }
+    }
+
+    @Test
+    public void testUpdateAndGet() {
+        List<Var> vars = newVars(2000);
+        CPFact fact = new CPFact();
+        for (Var var : vars) {
+            assertTrue(fact.update(var, c(var.getIndex())));
+        }
+        assertFalse(fact.update(vars.get(7), c(7)));
+        assertTrue(fact.update(vars.get(7), Value.getNAC()));
+        assertEquals(2000, fact.keySet().size());
+        for (Var var : vars) {
+            Value expected = var.getIndex() == 7 ? Value.getNAC() : c(var.getIndex());
+            assertEquals(expected, fact.get(var));
+        }
+        assertEquals(Value.getUndef(), fact.get(newVar(3)));
+    }
+
+    @Test
+    public void testRemove() {
+        List<Var> vars = newVars(1000);
+        CPFact fact = new CPFact();
+        vars.forEach(var -> fact.update(var, c(1)));
+        for (int i = 0; i < 1000; i += 2) {
+            assertEquals(c(1), fact.remove(vars.get(i)));
+        }
+        assertNull(fact.remove(vars.get(0)));
+        // updating a variable to UNDEF removes it
+        assertTrue(fact.update(vars.get(1), Value.getUndef()));
+        assertFalse(fact.update(vars.get(1), Value.getUndef()));
+        assertEquals(499, fact.keySet().size());
+        for (int i = 0; i < 1000; ++i) {
+            Value expected = i % 2 == 0 || i == 1 ? Value.getUndef() : c(1);
+            assertEquals(expected, fact.get(vars.get(i)));
+        }
+        // removing all variables makes the fact equal to an empty one
+        vars.forEach(fact::remove);
+        assertEquals(new CPFact(), fact);
+    }
+
+    @Test
+    public void testCollisions() {
+        Var x1 = newVar(5), x2 = newVar(5), x3 = newVar(5), y = newVar(37);
+        CPFact fact = new CPFact();
+        fact.update(x1, c(1));
+        fact.update(x2, c(2));
+        fact.update(y, c(4));
+        fact.update(x3, c(3));
+        assertEquals(c(1), fact.get(x1));
+        assertEquals(c(2), fact.get(x2));
+        assertEquals(c(3), fact.get(x3));
+        assertEquals(c(4), fact.get(y));
+        assertEquals(c(2), fact.remove(x2));
+        assertEquals(Value.getUndef(), fact.get(x2));
+        assertEquals(c(3), fact.get(x3));
+
+        CPFact other = new CPFact();
+        other.update(y, c(4));
+        other.update(x3, c(3));
+        other.update(x1, c(1));
+        assertEquals(fact, other);
+        assertEquals(fact.hashCode(), other.hashCode());
+        other.update(x3, Value.getNAC());
+        assertNotEquals(fact, other);
+    }
+
+    @Test
+    public void testEqualsOfDifferentNodeKinds() {
+        Var v5 = newVar(5), v6 = newVar(6), v5OfOtherMethod = newVar(5);
+        CPFact f1 = new CPFact();
+        f1.update(v5, c(1));
+        f1.update(v6, c(1));
+        CPFact f2 = new CPFact();
+        f2.update(v5, c(1));
+        f2.update(v5OfOtherMethod, c(1));
+        assertNotEquals(f1, f2);
+        assertNotEquals(f2, f1);
+        CPFact f3 = new CPFact();
+        f3.update(v5OfOtherMethod, c(1));
+        assertNotEquals(f3, f2);
+        assertNotEquals(f2, f3);
+    }
+
+    @Test
+    public void testMeet() {
+        Var a = newVar(0), b = newVar(1), c = newVar(2), d = newVar(3);
+        CPFact target = new CPFact();
+        target.update(a, c(1));
+        target.update(b, c(2));
+        target.update(c, c(3));
+        CPFact fact = new CPFact();
+        fact.update(a, c(1));
+        fact.update(b, c(5));
+        fact.update(d, c(4));
+        assertTrue(target.meet(fact));
+        assertEquals(c(1), target.get(a));
+        assertEquals(Value.getNAC(), target.get(b));
+        assertEquals(c(3), target.get(c));
+        assertEquals(c(4), target.get(d));
+        assertFalse(target.meet(fact));
+        assertFalse(target.meet(target.copy()));
+        // the fact which is met into target does not change
+        assertEquals(c(5), fact.get(b));
+        assertEquals(Value.getUndef(), fact.get(c));
+    }
+
+    @Test
+    public void testCopy() {
+        List<Var> vars = newVars(100);
+        CPFact fact = new CPFact();
+        vars.forEach(var -> fact.update(var, c(var.getIndex())));
+        CPFact copy = fact.copy();
+        assertEquals(fact, copy);
+        copy.update(vars.get(50), Value.getNAC());
+        copy.remove(vars.get(60));
+        assertEquals(c(50), fact.get(vars.get(50)));
+        assertEquals(c(60), fact.get(vars.get(60)));
+        assertNotEquals(fact, copy);
+        fact.update(vars.get(70), Value.getNAC());
+        assertEquals(c(70), copy.get(vars.get(70)));
+        assertTrue(fact.copyFrom(copy));
+        assertEquals(Value.getNAC(), fact.get(vars.get(50)));
+        assertEquals(c(60), fact.get(vars.get(60)));
+        // copyFrom overwrites the variables in the given fact
+        assertEquals(c(70), fact.get(vars.get(70)));
+        assertFalse(fact.copyFrom(copy));
+    }
+
+    /**
+     * Applies random operations to facts and checks them against maps.
+     */
+    @Test
+    public void testRandomOperations() {
+        Random random = new Random(0);
+        // two variables for each small index, plus some large indexes
+        List<Var> vars = new ArrayList<>();
+        for (int i = 0; i < 40; ++i) {
+            vars.add(newVar(i));
+            vars.add(newVar(i));
+        }
+        for (int i = 0; i < 20; ++i) {
+            vars.add(newVar(1000 + 33 * i));
+        }
+        int n = 4;
+        CPFact[] facts = new CPFact[n];
+        List<Map<Var, Value>> models = new ArrayList<>();
+        for (int i = 0; i < n; ++i) {
+            facts[i] = new CPFact();
+            models.add(new HashMap<>());
+        }
+        Value[] values = { Value.getUndef(), Value.getNAC(), c(0), c(1), c(-1) };
+        for (int step = 0; step < 20000; ++step) {
+            int i = random.nextInt(n), j = random.nextInt(n);
+            Map<Var, Value> model = models.get(i);
+            switch (random.nextInt(6)) {
+                case 0, 1 -> {
+                    Var var = vars.get(random.nextInt(vars.size()));
+                    Value value = values[random.nextInt(values.length)];
+                    Value old = model.getOrDefault(var, Value.getUndef());
+                    assertEquals(!old.equals(value), facts[i].update(var, value));
+                    if (value.isUndef()) {
+                        model.remove(var);
+                    } else {
+                        model.put(var, value);
+                    }
+                }
+                case 2 -> {
+                    Var var = vars.get(random.nextInt(vars.size()));
+                    assertEquals(model.remove(var), facts[i].remove(var));
+                }
+                case 3 -> {
+                    Map<Var, Value> expected = new HashMap<>(model);
+                    models.get(j).forEach((var, value) -> expected.put(var,
+                            meet(expected.getOrDefault(var, Value.getUndef()), value)));
+                    assertEquals(!expected.equals(model), facts[i].meet(facts[j]));
+                    models.set(i, expected);
+                }
+                case 4 -> {
+                    Map<Var, Value> expected = new HashMap<>(model);
+                    expected.putAll(models.get(j));
+                    assertEquals(!expected.equals(model), facts[i].copyFrom(facts[j]));
+                    models.set(i, expected);
+                }
+                default -> {
+                    facts[i] = facts[j].copy();
+                    models.set(i, new HashMap<>(models.get(j)));
+                }
+            }
+            for (int k = 0; k < n; ++k) {
+                Map<Var, Value> actual = new HashMap<>();
+                facts[k].forEach(actual::put);
+                assertEquals(models.get(k), actual);
+                for (int l = 0; l < n; ++l) {
+                    assertEquals(models.get(k).equals(models.get(l)),
+                            facts[k].equals(facts[l]));
+                }
+            }
+        }
+    }
+}
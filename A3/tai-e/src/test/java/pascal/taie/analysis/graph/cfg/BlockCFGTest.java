@@ -0,0 +1,241 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.cfg;
+
+import org.junit.Assert;
+import org.junit.Test;
+import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.fact.SetFact;
+import pascal.taie.analysis.dataflow.solver.Solver;
+import pascal.taie.ir.DefaultIR;
+import pascal.taie.ir.stmt.Nop;
+import pascal.taie.ir.stmt.Stmt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+public class BlockCFGTest {
+
+    /**
+     * Nodes of the CFG, where s[0] is the entry and s[5] is the exit.
+     */
+    private final Stmt[] s = new Stmt[9];
+
+    /**
+     * Builds the CFG:
+     * <pre>
+     * s0 -> s1 -> s2 -> s3 -> s4 -> s5
+     *       ^           |     ^
+     *       +-----------+     s8 (unreachable)
+     * s6 <-> s7 (unreachable cycle without leader)
+     * </pre>
+     */
+    private CFG<Stmt> makeCFG() {
+        List<Stmt> stmts = new ArrayList<>();
+        for (int i = 0; i < s.length; ++i) {
+            s[i] = new Nop();
+            s[i].setIndex(i);
+            if (i != 0 && i != 5) {
+                stmts.add(s[i]);
+            }
+        }
+        TestCFG cfg = new TestCFG(stmts, s[0], s[5]);
+        cfg.addEdge(Edge.Kind.ENTRY, s[0], s[1]);
+        cfg.addEdge(Edge.Kind.FALL_THROUGH, s[1], s[2]);
+        cfg.addEdge(Edge.Kind.FALL_THROUGH, s[2], s[3]);
+        cfg.addEdge(Edge.Kind.IF_TRUE, s[3], s[1]);
+        cfg.addEdge(Edge.Kind.IF_FALSE, s[3], s[4]);
+        cfg.addEdge(Edge.Kind.RETURN, s[4], s[5]);
+        cfg.addEdge(Edge.Kind.GOTO, s[8], s[4]);
+        cfg.addEdge(Edge.Kind.FALL_THROUGH, s[6], s[7]);
+        cfg.addEdge(Edge.Kind.GOTO, s[7], s[6]);
+        return cfg;
+    }
+
+    @Test
+    public void testBlocks() {
+        CFG<Stmt> cfg = makeCFG();
+        BlockCFG<Stmt> blockCFG = new BlockCFG<>(cfg);
+        Assert.assertEquals(List.of(s[0]), blockCFG.getEntry().getNodes());
+        Assert.assertEquals(List.of(s[5]), blockCFG.getExit().getNodes());
+        Assert.assertEquals(List.of(s[1], s[2], s[3]),
+                blockCFG.getBlockOf(s[2]).getNodes());
+        Assert.assertEquals(List.of(s[4]), blockCFG.getBlockOf(s[4]).getNodes());
+        Assert.assertEquals(List.of(s[8]), blockCFG.getBlockOf(s[8]).getNodes());
+        // each node is in exactly one block
+        List<Stmt> nodes = new ArrayList<>();
+        for (BasicBlock<Stmt> block : blockCFG) {
+            for (Stmt node : block.getNodes()) {
+                Assert.assertSame(block, blockCFG.getBlockOf(node));
+                nodes.add(node);
+            }
+        }
+        Assert.assertEquals(cfg.getNumberOfNodes(), nodes.size());
+        Assert.assertEquals(cfg.getNodes(), Set.copyOf(nodes));
+        // each block edge is an edge out of the last node of its source
+        // to the first node of its target
+        int nEdges = 0;
+        for (BasicBlock<Stmt> block : blockCFG) {
+            for (Edge<BasicBlock<Stmt>> edge : blockCFG.getOutEdgesOf(block)) {
+                Edge<Stmt> nodeEdge = ((BlockEdge<Stmt>) edge).getEdge();
+                Assert.assertSame(block.getLast(), nodeEdge.getSource());
+                Assert.assertSame(edge.getTarget().getFirst(), nodeEdge.getTarget());
+                Assert.assertEquals(nodeEdge.getKind(), edge.getKind());
+                ++nEdges;
+            }
+        }
+        Assert.assertEquals(6, nEdges);
+    }
+
+    @Test
+    public void testCycleWithoutLeader() {
+        BlockCFG<Stmt> blockCFG = new BlockCFG<>(makeCFG());
+        BasicBlock<Stmt> cycle = blockCFG.getBlockOf(s[6]);
+        Assert.assertSame(cycle, blockCFG.getBlockOf(s[7]));
+        Assert.assertEquals(2, cycle.getNodes().size());
+        // the cycle is closed by an edge from the block to itself
+        Assert.assertTrue(blockCFG.hasEdge(cycle, cycle));
+        Assert.assertEquals(1, blockCFG.getInEdgesOf(cycle).size());
+    }
+
+    @Test
+    public void testForwardCompactSolving() {
+        testCompactSolving(true);
+    }
+
+    @Test
+    public void testBackwardCompactSolving() {
+        testCompactSolving(false);
+    }
+
+    /**
+     * Checks that solving on blocks yields the same facts as solving on
+     * nodes, including the facts of the nodes inside blocks, which are
+     * replayed from the facts of the blocks.
+     */
+    private void testCompactSolving(boolean forward) {
+        CFG<Stmt> cfg = makeCFG();
+        PathAnalysis analysis = new PathAnalysis(forward);
+        DataflowResult<Stmt, SetFact<Stmt>> expected =
+                Solver.makeSolver(analysis).solve(cfg, false);
+        DataflowResult<Stmt, SetFact<Stmt>> result =
+                Solver.makeSolver(analysis).solve(cfg, true);
+        // query the nodes in reverse order as well,
+        // so that blocks are replayed more than once
+        List<Stmt> nodes = new ArrayList<>(cfg.getNodes());
+        List<Stmt> reversed = new ArrayList<>(nodes);
+        Collections.reverse(reversed);
+        nodes.addAll(reversed);
+        for (Stmt node : nodes) {
+            Assert.assertEquals("IN fact of " + node,
+                    expected.getInFact(node), result.getInFact(node));
+            Assert.assertEquals("OUT fact of " + node,
+                    expected.getOutFact(node), result.getOutFact(node));
+        }
+        // the loop s1 -> s2 -> s3 -> s1 is inside a single block
+        SetFact<Stmt> fact = forward ?
+                result.getOutFact(s[2]) : result.getInFact(s[2]);
+        Assert.assertTrue(fact.contains(s[1]) && fact.contains(s[3]));
+    }
+
+    /**
+     * Computes the nodes on some path from the entry (forward)
+     * or to the exit (backward) to each node.
+     */
+    private static class PathAnalysis
+            implements DataflowAnalysis<Stmt, SetFact<Stmt>> {
+
+        private final boolean forward;
+
+        private PathAnalysis(boolean forward) {
+            this.forward = forward;
+        }
+
+        @Override
+        public boolean isForward() {
+            return forward;
+        }
+
+        @Override
+        public SetFact<Stmt> newBoundaryFact(CFG<Stmt> cfg) {
+            return new SetFact<>();
+        }
+
+        @Override
+        public SetFact<Stmt> newInitialFact() {
+            return new SetFact<>();
+        }
+
+        @Override
+        public void meetInto(SetFact<Stmt> fact, SetFact<Stmt> target) {
+            target.union(fact);
+        }
+
+        @Override
+        public boolean transferNode(Stmt node, SetFact<Stmt> in,
+                                    SetFact<Stmt> out) {
+            SetFact<Stmt> source = forward ? in : out;
+            SetFact<Stmt> target = forward ? out : in;
+            SetFact<Stmt> result = source.copy();
+            result.add(node);
+            if (result.equals(target)) {
+                return false;
+            }
+            target.set(result);
+            return true;
+        }
+
+        @Override
+        public boolean needTransferEdge(Edge<Stmt> edge) {
+            return false;
+        }
+
+        @Override
+        public SetFact<Stmt> transferEdge(Edge<Stmt> edge, SetFact<Stmt> nodeFact) {
+            return nodeFact;
+        }
+    }
+
+    /**
+     * CFG whose edges are given by tests.
+     */
+    private static class TestCFG extends AbstractCFG<Stmt> {
+
+        private TestCFG(List<Stmt> stmts, Stmt entry, Stmt exit) {
+            super(new DefaultIR(null, null, List.of(), Set.of(),
+                    List.of(), stmts, List.of()));
+            addNode(entry);
+            stmts.forEach(this::addNode);
+            addNode(exit);
+            setEntry(entry);
+            setExit(exit);
+        }
+
+        private void addEdge(Edge.Kind kind, Stmt source, Stmt target) {
+            addEdge(new Edge<>(kind, source, target));
+        }
+    }
+}
@@ -0,0 +1,17 @@
+class ConditionalBranch {
+
+    int join() {
+        int x = 1;
+        int y;
+        if (x > 0) {
+            y = 10;
+        } else {
+            y = 20; // unreachable branch
+        }
+        int z = y + 1;
+        if (z > 20) {
+            z = 0; // unreachable if y = 20 does not flow to the join
+        }
+        return z;
+    }
+}
@@ -0,0 +1,13 @@
+class LoopCounter {
+
+    void rangeGuard() {
+        for (int i = 0; i < 10; i++) {
+            if (i > 20) {
+                dead(); // unreachable branch, as i is in [0, 9]
+            }
+        }
+    }
+
+    void dead() {
+    }
+}
@@ -22,9 +22,11 @@
 
 package pascal.taie.analysis;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import pascal.taie.World;
+import pascal.taie.analysis.dataflow.solver.SolverMetrics;
 import pascal.taie.analysis.graph.callgraph.CallGraph;
 import pascal.taie.analysis.graph.callgraph.CallGraphBuilder;
 import pascal.taie.config.AnalysisConfig;
@@ -50,6 +52,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -68,6 +71,14 @@ public class ResultProcessor extends ProgramAnalysis {
 
     private static final Logger logger = LogManager.getLogger(ResultProcessor.class);
 
+    /**
+     * Suffix of the file of solver metrics, which is appended to
+     * the path of the output file.
+     */
+    private static final String METRICS_SUFFIX = ".metrics.json";
+
+    private static final String METRICS_FILE = "solver-metrics.json";
+
     private final String action;
 
     private PrintStream out;
@@ -103,6 +114,9 @@ public class ResultProcessor extends ProgramAnalysis {
         if (groups.containsKey(false)) {
             processIntraResults(groups.get(false));
         }
+        if (groups.containsKey(true)) {
+            exportMetrics(groups.get(true));
+        }
         if (getOptions().getBoolean("log-mismatches")) {
             mismatches.forEach(logger::info);
         }
@@ -188,6 +202,41 @@ public class ResultProcessor extends ProgramAnalysis {
         processResults(methods, analyses, (m, id) -> World.get().getResult(id));
     }
 
+    /**
+     * Exports the solver metrics of given inter-procedural analyses
+     * (recorded when option "metrics" of the analyses is enabled) as JSON,
+     * which maps each analysis to the metrics of every method.
+     * The metrics are written next to the output file, or to
+     * {@link #METRICS_FILE} if there is no output file.
+     */
+    private void exportMetrics(List<String> analyses) {
+        Map<String, Map<String, SolverMetrics>> metrics = new TreeMap<>();
+        analyses.forEach(id -> {
+            Map<?, SolverMetrics> methodMetrics =
+                    World.get().getResult(SolverMetrics.getKey(id));
+            if (methodMetrics != null) {
+                Map<String, SolverMetrics> sorted = new TreeMap<>();
+                methodMetrics.forEach((m, solverMetrics) ->
+                        sorted.put(m.toString(), solverMetrics));
+                metrics.put(id, sorted);
+            }
+        });
+        if (metrics.isEmpty()) {
+            return;
+        }
+        String output = getOptions().getString("file");
+        Path path = action.equals("dump") && output != null ?
+                Path.of(output + METRICS_SUFFIX) : Path.of(METRICS_FILE);
+        try {
+            new ObjectMapper()
+                    .writerWithDefaultPrettyPrinter()
+                    .writeValue(path.toFile(), metrics);
+            logger.info("Solver metrics are written to {}", path);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write solver metrics", e);
+        }
+    }
+
     private void processIntraResults(List<String> analyses) {
         Stream<JMethod> methods = World.get()
                 .getClassHierarchy()
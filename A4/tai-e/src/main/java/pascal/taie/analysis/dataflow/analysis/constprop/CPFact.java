@@ -25,8 +25,17 @@ package pascal.taie.analysis.dataflow.analysis.constprop;
 import pascal.taie.analysis.dataflow.fact.MapFact;
 import pascal.taie.ir.exp.Var;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.LongBinaryOperator;
 
 /**
  * Represents data facts of constant propagation, which maps variables
@@ -37,15 +46,53 @@ import java.util.Map;
  * it represents that the lattice value of the variable is UNDEF;
  * moreover, if we set the lattice value of a variable to UNDEF,
  * it effectively removes the variable from the CPFact.
+ * <p>
+ * The mappings are kept in a persistent hash array mapped trie keyed by
+ * {@link Var#getIndex()}, and each value is encoded as a {@code long}.
+ * A CPFact only holds the root of the trie, and updating it replaces the
+ * nodes on the path to the updated variable, sharing all other nodes.
+ * Hence {@link #copy()} takes constant time, and {@link #equals(Object)},
+ * {@link #meet(CPFact)} and {@link #copyFrom(MapFact)} skip the subtries
+ * shared by both facts, so their costs are proportional to the number
+ * of variables on which the two facts differ.
+ * <p>
+ * Moreover, the nodes created by a fact since it was last copied are
+ * owned by the fact, and are modified in place instead of being replaced.
+ * Thus once a fact holds its own nodes, e.g., the in fact of a node
+ * during solving, updates and meets which only change values (which is
+ * the common case) do not allocate, and nor do {@link #equals(Object)}
+ * and meets which change nothing.
  */
 public class CPFact extends MapFact<Var, Value> {
 
+    /**
+     * Encoded UNDEF, which is never stored in the trie.
+     */
+    private static final long UNDEF = 0L;
+
+    /**
+     * Encoded NAC.
+     */
+    private static final long NAC = 1L << 32;
+
+    /**
+     * Tag of encoded constants, whose lower 32 bits hold the integer.
+     */
+    private static final long CONSTANT = 2L << 32;
+
+    private static final LongBinaryOperator MEET = CPFact::meet;
+
+    private static final LongBinaryOperator OVERWRITE = (v1, v2) -> v2;
+
+    private final Trie trie;
+
     public CPFact() {
-        this(Collections.emptyMap());
+        this(new Trie(null));
     }
 
-    private CPFact(Map<Var, Value> map) {
-        super(map);
+    private CPFact(Trie trie) {
+        super(() -> trie);
+        this.trie = trie;
     }
 
     /**
@@ -54,7 +101,7 @@ public class CPFact extends MapFact<Var, Value> {
      */
     @Override
     public Value get(Var key) {
-        return map.getOrDefault(key, Value.getUndef());
+        return decode(get(trie.root, key));
     }
 
     @Override
@@ -65,12 +112,695 @@ public class CPFact extends MapFact<Var, Value> {
             // as we use absence to represent UNDEF.
             return remove(key) != null;
         } else {
-            return super.update(key, value);
+            return trie.put(key, encode(value));
         }
     }
 
+    @Override
+    public Value remove(Var key) {
+        long old = get(trie.root, key);
+        if (old == UNDEF) {
+            return null;
+        }
+        trie.remove(key);
+        return decode(old);
+    }
+
+    @Override
+    public boolean copyFrom(MapFact<Var, Value> fact) {
+        if (!(fact instanceof CPFact other)) {
+            return super.copyFrom(fact);
+        }
+        return trie.merge(other.trie, OVERWRITE);
+    }
+
+    /**
+     * Meets given fact into this fact, i.e., for each variable in given fact,
+     * updates its value in this fact to the result of
+     * {@link ConstantPropagation#meetValue(Value, Value)}.
+     *
+     * @return true if this fact changed as a result of the call, otherwise false.
+     */
+    public boolean meet(CPFact fact) {
+        return trie.merge(fact.trie, MEET);
+    }
+
     @Override
     public CPFact copy() {
-        return new CPFact(this.map);
+        // the nodes are shared by both facts from now on,
+        // thus this fact must not modify them in place any more
+        trie.disown();
+        return new CPFact(new Trie(trie.root));
+    }
+
+    @Override
+    public void clear() {
+        trie.root = null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return equals(trie.root, ((CPFact) o).trie.root);
+    }
+
+    @Override
+    public int hashCode() {
+        return trie.hashCode();
+    }
+
+    private static long encode(Value value) {
+        if (value.isNAC()) {
+            return NAC;
+        } else if (value.isConstant()) {
+            return CONSTANT | (value.getConstant() & 0xFFFFFFFFL);
+        } else {
+            return UNDEF;
+        }
+    }
+
+    private static Value decode(long value) {
+        if (value == UNDEF) {
+            return Value.getUndef();
+        } else if (value == NAC) {
+            return Value.getNAC();
+        } else {
+            return Value.makeConstant((int) value);
+        }
+    }
+
+    /**
+     * Meets two encoded values, in the same way as
+     * {@link ConstantPropagation#meetValue(Value, Value)}.
+     */
+    private static long meet(long v1, long v2) {
+        if (v1 == NAC || v2 == NAC) {
+            return NAC;
+        } else if (v1 == UNDEF) {
+            return v2;
+        } else if (v2 == UNDEF || v1 == v2) {
+            return v1;
+        } else {
+            return NAC;
+        }
+    }
+
+    // ---------- persistent trie ----------
+    // The trie is kept canonical: the shape of a trie only depends on
+    // the variables it contains, i.e., a leaf always sits at the highest
+    // level where its index is distinguished from the other indexes, and
+    // a branch never has a single child which is not a branch.
+    // Nodes are modified in place only by the trie owning them (see
+    // Trie.edit), and as every modification creates or modifies all nodes
+    // on the path from the root, the ancestors of an owned node are
+    // owned too. The read-only operations are static methods below,
+    // and the modifications are methods of Trie.
+
+    private static final int BITS = 5;
+
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static int slice(int hash, int shift) {
+        return (hash >>> shift) & MASK;
+    }
+
+    private static long get(Node node, Var var) {
+        return get(node, var, 0);
+    }
+
+    /**
+     * @return the encoded value of var in the subtrie at given level.
+     */
+    private static long get(Node node, Var var, int shift) {
+        int hash = var.getIndex();
+        while (node instanceof Branch branch) {
+            int bit = 1 << slice(hash, shift);
+            if ((branch.bitmap & bit) == 0) {
+                return UNDEF;
+            }
+            node = branch.children[branch.indexOf(bit)];
+            shift += BITS;
+        }
+        if (node instanceof Leaf leaf) {
+            return leaf.var == var ? leaf.value : UNDEF;
+        } else if (node instanceof Collision collision) {
+            int i = collision.indexOf(var);
+            return i < 0 ? UNDEF : collision.values[i];
+        } else {
+            return UNDEF;
+        }
+    }
+
+    private static boolean equals(Node n1, Node n2) {
+        if (n1 == n2) {
+            return true;
+        } else if (n1 == null || n2 == null || n1.size != n2.size) {
+            return false;
+        } else if (n1 instanceof Branch b1 && n2 instanceof Branch b2) {
+            if (b1.bitmap != b2.bitmap) {
+                return false;
+            }
+            for (int i = 0; i < b1.children.length; ++i) {
+                if (!equals(b1.children[i], b2.children[i])) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (n1 instanceof Leaf l1 && n2 instanceof Leaf l2) {
+            return l1.var == l2.var && l1.value == l2.value;
+        } else if (n1 instanceof Collision c1 && n2 instanceof Collision c2) {
+            if (c1.hash != c2.hash) {
+                return false;
+            }
+            for (int i = 0; i < c1.size; ++i) {
+                int j = c2.indexOf(c1.vars[i]);
+                if (j < 0 || c2.values[j] != c1.values[i]) {
+                    return false;
+                }
+            }
+            return true;
+        } else {
+            // as the trie is canonical, nodes of different kinds never
+            // hold the same variables, e.g., a branch holds variables of
+            // at least two indexes, while a collision holds only one
+            return false;
+        }
+    }
+
+    // The entries of a leaf or collision node, which are accessed
+    // by position to avoid allocating a collection of them.
+
+    private static Var varAt(Node node, int i) {
+        return node instanceof Leaf leaf ? leaf.var : ((Collision) node).vars[i];
+    }
+
+    private static long valueAt(Node node, int i) {
+        return node instanceof Leaf leaf ? leaf.value : ((Collision) node).values[i];
+    }
+
+    private static void forEach(Node node, BiConsumer<? super Var, ? super Value> action) {
+        if (node instanceof Branch branch) {
+            for (Node child : branch.children) {
+                forEach(child, action);
+            }
+        } else if (node instanceof Leaf leaf) {
+            action.accept(leaf.var, decode(leaf.value));
+        } else if (node instanceof Collision collision) {
+            for (int i = 0; i < collision.size; ++i) {
+                action.accept(collision.vars[i], decode(collision.values[i]));
+            }
+        }
+    }
+
+    /**
+     * Trie node. The trie of an empty fact is null.
+     */
+    private abstract static class Node {
+
+        /**
+         * The edit of the trie which created this node,
+         * see {@link Trie#edit}.
+         */
+        final long edit;
+
+        /**
+         * Number of variables in the subtrie.
+         */
+        int size;
+
+        Node(long edit, int size) {
+            this.edit = edit;
+            this.size = size;
+        }
+    }
+
+    private static final class Leaf extends Node {
+
+        final Var var;
+
+        long value;
+
+        Leaf(long edit, Var var, long value) {
+            super(edit, 1);
+            this.var = var;
+            this.value = value;
+        }
+
+        int hash() {
+            return var.getIndex();
+        }
+    }
+
+    /**
+     * Holds different variables with the same index,
+     * i.e., variables of different methods.
+     * The vars array is never modified, thus it may be shared
+     * by different collisions.
+     */
+    private static final class Collision extends Node {
+
+        final int hash;
+
+        final Var[] vars;
+
+        final long[] values;
+
+        Collision(long edit, int hash, Var[] vars, long[] values) {
+            super(edit, vars.length);
+            this.hash = hash;
+            this.vars = vars;
+            this.values = values;
+        }
+
+        int indexOf(Var var) {
+            for (int i = 0; i < vars.length; ++i) {
+                if (vars[i] == var) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Bitmap-compressed inner node: bit i of the bitmap is set iff the
+     * node has a child for slice value i, and children are ordered
+     * by slice values.
+     */
+    private static final class Branch extends Node {
+
+        int bitmap;
+
+        Node[] children;
+
+        Branch(long edit, int bitmap, Node[] children) {
+            super(edit, sizeOf(children));
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+
+        private static int sizeOf(Node[] children) {
+            int size = 0;
+            for (Node child : children) {
+                size += child.size;
+            }
+            return size;
+        }
+
+        int indexOf(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+    }
+
+    /**
+     * Mutable holder of the root of the trie, which also serves as
+     * the {@link Map} view of the fact required by {@link MapFact}.
+     */
+    private static final class Trie extends AbstractMap<Var, Value> {
+
+        /**
+         * Source of edits. As facts of different methods may be
+         * analyzed in parallel, it is atomic.
+         */
+        private static final AtomicLong EDITS = new AtomicLong();
+
+        private Node root;
+
+        /**
+         * Identifies the nodes owned by this trie, i.e., the nodes
+         * created with the same edit, which are modified in place.
+         * The edit is renewed when the nodes of this trie are shared
+         * with another trie, so that neither trie modifies them any more.
+         */
+        private long edit = EDITS.incrementAndGet();
+
+        /**
+         * Whether the ongoing modification changed the content of this trie.
+         */
+        private boolean changed;
+
+        /**
+         * Whether the ongoing merge put nodes of the other trie in this trie.
+         */
+        private boolean shared;
+
+        private Trie(Node root) {
+            this.root = root;
+        }
+
+        private void disown() {
+            edit = EDITS.incrementAndGet();
+        }
+
+        /**
+         * @return true if this trie changed as a result of the call.
+         */
+        private boolean put(Var var, long value) {
+            changed = false;
+            root = put(root, var, var.getIndex(), value, 0);
+            return changed;
+        }
+
+        private void remove(Var var) {
+            root = remove(root, var, var.getIndex(), 0);
+        }
+
+        /**
+         * Merges given trie into this trie. For each variable in both tries,
+         * this trie maps it to op(value in this trie, value in other trie);
+         * variables only in the other trie are added to this trie.
+         *
+         * @return true if this trie changed as a result of the call.
+         */
+        private boolean merge(Trie other, LongBinaryOperator op) {
+            changed = false;
+            shared = false;
+            root = merge(root, other.root, 0, op);
+            if (shared) {
+                other.disown();
+            }
+            return changed;
+        }
+
+        private boolean owns(Node node) {
+            return node.edit == edit;
+        }
+
+        private Node put(Node node, Var var, int hash, long value, int shift) {
+            if (node == null) {
+                changed = true;
+                return new Leaf(edit, var, value);
+            } else if (node instanceof Branch branch) {
+                int bit = 1 << slice(hash, shift);
+                int i = branch.indexOf(bit);
+                if ((branch.bitmap & bit) == 0) {
+                    changed = true;
+                    return insert(branch, bit, i, new Leaf(edit, var, value));
+                }
+                Node child = branch.children[i];
+                int oldSize = child.size;
+                Node newChild = put(child, var, hash, value, shift + BITS);
+                return setChild(branch, i, child, oldSize, newChild);
+            } else if (node instanceof Leaf leaf) {
+                if (leaf.var == var) {
+                    if (leaf.value == value) {
+                        return leaf;
+                    }
+                    changed = true;
+                    if (owns(leaf)) {
+                        leaf.value = value;
+                        return leaf;
+                    }
+                    return new Leaf(edit, var, value);
+                }
+                changed = true;
+                if (leaf.hash() == hash) {
+                    return new Collision(edit, hash,
+                            new Var[]{ leaf.var, var }, new long[]{ leaf.value, value });
+                } else {
+                    return pair(node, leaf.hash(), new Leaf(edit, var, value), hash, shift);
+                }
+            } else {
+                Collision collision = (Collision) node;
+                if (collision.hash == hash) {
+                    return put(collision, var, value);
+                }
+                changed = true;
+                return pair(node, collision.hash, new Leaf(edit, var, value), hash, shift);
+            }
+        }
+
+        private Node put(Collision collision, Var var, long value) {
+            int i = collision.indexOf(var);
+            int size = collision.size;
+            if (i >= 0) {
+                if (collision.values[i] == value) {
+                    return collision;
+                }
+                changed = true;
+                if (owns(collision)) {
+                    collision.values[i] = value;
+                    return collision;
+                }
+                long[] newValues = collision.values.clone();
+                newValues[i] = value;
+                return new Collision(edit, collision.hash, collision.vars, newValues);
+            }
+            changed = true;
+            Var[] newVars = new Var[size + 1];
+            long[] newValues = new long[size + 1];
+            System.arraycopy(collision.vars, 0, newVars, 0, size);
+            System.arraycopy(collision.values, 0, newValues, 0, size);
+            newVars[size] = var;
+            newValues[size] = value;
+            return new Collision(edit, collision.hash, newVars, newValues);
+        }
+
+        /**
+         * Creates the subtrie at given level holding two non-branch nodes
+         * with different hashes.
+         */
+        private Node pair(Node n1, int h1, Node n2, int h2, int shift) {
+            int i1 = slice(h1, shift);
+            int i2 = slice(h2, shift);
+            if (i1 == i2) {
+                return new Branch(edit, 1 << i1,
+                        new Node[]{ pair(n1, h1, n2, h2, shift + BITS) });
+            } else if (i1 < i2) {
+                return new Branch(edit, (1 << i1) | (1 << i2), new Node[]{ n1, n2 });
+            } else {
+                return new Branch(edit, (1 << i1) | (1 << i2), new Node[]{ n2, n1 });
+            }
+        }
+
+        private Node remove(Node node, Var var, int hash, int shift) {
+            if (node instanceof Branch branch) {
+                int bit = 1 << slice(hash, shift);
+                if ((branch.bitmap & bit) == 0) {
+                    return branch;
+                }
+                int i = branch.indexOf(bit);
+                Node child = branch.children[i];
+                int oldSize = child.size;
+                Node newChild = remove(child, var, hash, shift + BITS);
+                if (newChild == null) {
+                    return delete(branch, bit, i);
+                } else if (newChild != child && branch.children.length == 1
+                        && !(newChild instanceof Branch)) {
+                    return newChild; // pull up the single non-branch child
+                } else {
+                    return setChild(branch, i, child, oldSize, newChild);
+                }
+            } else if (node instanceof Leaf leaf) {
+                return leaf.var == var ? null : leaf;
+            } else if (node instanceof Collision collision) {
+                int i = collision.indexOf(var);
+                int size = collision.size;
+                if (i < 0) {
+                    return collision;
+                } else if (size == 2) {
+                    return new Leaf(edit, collision.vars[1 - i], collision.values[1 - i]);
+                }
+                Var[] newVars = new Var[size - 1];
+                long[] newValues = new long[size - 1];
+                System.arraycopy(collision.vars, 0, newVars, 0, i);
+                System.arraycopy(collision.values, 0, newValues, 0, i);
+                System.arraycopy(collision.vars, i + 1, newVars, i, size - i - 1);
+                System.arraycopy(collision.values, i + 1, newValues, i, size - i - 1);
+                return new Collision(edit, collision.hash, newVars, newValues);
+            } else {
+                return null;
+            }
+        }
+
+        /**
+         * Merges two subtries at given level, see {@link #merge(Trie, LongBinaryOperator)}.
+         */
+        private Node merge(Node n1, Node n2, int shift, LongBinaryOperator op) {
+            if (n1 == n2 || n2 == null) {
+                return n1; // ops used here are idempotent
+            } else if (n1 == null) {
+                changed = true;
+                shared = true;
+                return n2;
+            } else if (n1 instanceof Branch b1 && n2 instanceof Branch b2) {
+                int bitmap = b1.bitmap | b2.bitmap;
+                if (bitmap == b1.bitmap) {
+                    // only the children in n2 need to be merged
+                    Branch result = b1;
+                    for (int bits = b2.bitmap; bits != 0; bits &= bits - 1) {
+                        int bit = bits & -bits;
+                        int i = result.indexOf(bit);
+                        Node c1 = result.children[i];
+                        int oldSize = c1.size;
+                        Node c = merge(c1, b2.children[b2.indexOf(bit)], shift + BITS, op);
+                        result = setChild(result, i, c1, oldSize, c);
+                    }
+                    return result;
+                }
+                changed = true;
+                Node[] children = new Node[Integer.bitCount(bitmap)];
+                for (int bits = bitmap, i = 0; bits != 0; bits &= bits - 1, ++i) {
+                    int bit = bits & -bits;
+                    Node c1 = (b1.bitmap & bit) == 0 ? null
+                            : b1.children[b1.indexOf(bit)];
+                    Node c2 = (b2.bitmap & bit) == 0 ? null
+                            : b2.children[b2.indexOf(bit)];
+                    children[i] = merge(c1, c2, shift + BITS, op);
+                }
+                return new Branch(edit, bitmap, children);
+            } else if (n2 instanceof Branch) {
+                // n1 is a leaf or collision, so insert its entries into n2,
+                // which holds more variables than n1
+                changed = true;
+                shared = true;
+                Node result = n2;
+                for (int i = 0; i < n1.size; ++i) {
+                    Var var = varAt(n1, i);
+                    long v1 = valueAt(n1, i);
+                    long v2 = CPFact.get(result, var, shift);
+                    long v = v2 == UNDEF ? v1 : op.applyAsLong(v1, v2);
+                    result = put(result, var, var.getIndex(), v, shift);
+                }
+                return result;
+            } else {
+                // n2 is a leaf or collision, so insert its entries into n1
+                Node result = n1;
+                for (int i = 0; i < n2.size; ++i) {
+                    Var var = varAt(n2, i);
+                    long v2 = valueAt(n2, i);
+                    long v1 = CPFact.get(result, var, shift);
+                    long v = v1 == UNDEF ? v2 : op.applyAsLong(v1, v2);
+                    result = put(result, var, var.getIndex(), v, shift);
+                }
+                return result;
+            }
+        }
+
+        /**
+         * Sets the i-th child of given branch to newChild, which results
+         * from modifying the child whose size was oldSize.
+         *
+         * @return the branch itself if it is owned (or the child has been
+         * modified in place, which implies the branch is owned),
+         * otherwise a copy of the branch.
+         */
+        private Branch setChild(Branch branch, int i, Node child,
+                                int oldSize, Node newChild) {
+            if (newChild == child) {
+                branch.size += child.size - oldSize;
+                return branch;
+            } else if (owns(branch)) {
+                branch.children[i] = newChild;
+                branch.size += newChild.size - oldSize;
+                return branch;
+            } else {
+                Node[] newChildren = branch.children.clone();
+                newChildren[i] = newChild;
+                return new Branch(edit, branch.bitmap, newChildren);
+            }
+        }
+
+        private Branch insert(Branch branch, int bit, int i, Node child) {
+            Node[] children = branch.children;
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(children, 0, newChildren, 0, i);
+            newChildren[i] = child;
+            System.arraycopy(children, i, newChildren, i + 1, children.length - i);
+            if (owns(branch)) {
+                branch.bitmap |= bit;
+                branch.children = newChildren;
+                branch.size += child.size;
+                return branch;
+            }
+            return new Branch(edit, branch.bitmap | bit, newChildren);
+        }
+
+        private Node delete(Branch branch, int bit, int i) {
+            Node[] children = branch.children;
+            if (children.length == 1) {
+                return null;
+            }
+            if (children.length == 2 && !(children[1 - i] instanceof Branch)) {
+                return children[1 - i]; // pull up the remaining non-branch child
+            }
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(children, 0, newChildren, 0, i);
+            System.arraycopy(children, i + 1, newChildren, i, children.length - i - 1);
+            return new Branch(edit, branch.bitmap & ~bit, newChildren);
+        }
+
+        @Override
+        public Value get(Object key) {
+            if (key instanceof Var var) {
+                long value = CPFact.get(root, var);
+                return value == UNDEF ? null : decode(value);
+            }
+            return null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Var var && CPFact.get(root, var) != UNDEF;
+        }
+
+        @Override
+        public Value put(Var key, Value value) {
+            Value old = get(key);
+            if (value.isUndef()) {
+                remove(key);
+            } else {
+                put(key, encode(value));
+            }
+            return old;
+        }
+
+        @Override
+        public Value remove(Object key) {
+            Value old = get(key);
+            if (old != null) {
+                remove((Var) key);
+            }
+            return old;
+        }
+
+        @Override
+        public int size() {
+            return root == null ? 0 : root.size;
+        }
+
+        @Override
+        public void clear() {
+            root = null;
+        }
+
+        @Override
+        public void forEach(BiConsumer<? super Var, ? super Value> action) {
+            CPFact.forEach(root, action);
+        }
+
+        @Override
+        public Set<Map.Entry<Var, Value>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Map.Entry<Var, Value>> iterator() {
+                    // iterates over a snapshot, as the trie may be modified
+                    List<Map.Entry<Var, Value>> entries = new ArrayList<>(size());
+                    CPFact.forEach(root, (var, value) ->
+                            entries.add(new SimpleImmutableEntry<>(var, value)));
+                    return Collections.unmodifiableList(entries).iterator();
+                }
+
+                @Override
+                public int size() {
+                    return Trie.this.size();
+                }
+            };
+        }
     }
 }
@@ -23,7 +23,12 @@
 package pascal.taie.analysis.dataflow.analysis.constprop;
 
 import pascal.taie.analysis.dataflow.analysis.AbstractDataflowAnalysis;
+import pascal.taie.analysis.dataflow.analysis.DataflowAnalysis;
+import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.solver.Solver;
 import pascal.taie.analysis.graph.cfg.CFG;
+import pascal.taie.analysis.graph.cfg.CFGBuilder;
+import pascal.taie.analysis.graph.cfg.Edge;
 import pascal.taie.config.AnalysisConfig;
 import pascal.taie.ir.IR;
 import pascal.taie.ir.exp.*;
@@ -33,6 +38,9 @@ import pascal.taie.language.type.PrimitiveType;
 import pascal.taie.language.type.Type;
 import pascal.taie.util.AnalysisException;
 
+import java.util.function.Function;
+import java.util.function.IntBinaryOperator;
+
 public class ConstantPropagation extends
         AbstractDataflowAnalysis<Stmt, CPFact> {
 
@@ -42,6 +50,17 @@ public class ConstantPropagation extends
         super(config);
     }
 
+    /**
+     * Solves the IR with the definitions of its statements compiled
+     * once, see {@link MethodTransfer}.
+     */
+    @Override
+    public DataflowResult<Stmt, CPFact> analyze(IR ir) {
+        CFG<Stmt> cfg = ir.getResult(CFGBuilder.ID);
+        return Solver.makeSolver(new CompiledConstantPropagation(ir))
+                .solve(cfg);
+    }
+
     @Override
     public boolean isForward() {
         return true;
@@ -71,9 +90,9 @@ public class ConstantPropagation extends
     public void meetInto(CPFact fact, CPFact target) {
         // TODO - finish me
         //将fact中的变量值与target中的变量值进行meet操作
-        for (Var var: fact.keySet()) {
-            target.update(var, meetValue(fact.get(var), target.get(var)));
-        }
+        // CPFact.meet() applies meetValue() to each variable on the
+        // encoded values directly, without creating Value objects
+        target.meet(fact);
     }
 
     /**
@@ -103,14 +122,12 @@ public class ConstantPropagation extends
         //判断是否拥有合法左值, 包括def的类型Var和Var中的ValueType是否为Int, 如果不是, 本次实验中可以认为是nop空操作. 不需要为这个Stmt做任何分析, 直接将inFact copy给 outFact即可.
         //计算Stmt的右值(通过evaluate()获得), 并更新outFact中的相应Var def(笔者在此并未使用update方法的返回值, 或许可从此处入手优化效率, 但笔者不能保证其正确性)
         //比较outFact是否更新返回布尔值.
+        // copy() takes constant time as CPFact shares its persistent trie
         CPFact oldOut = out.copy();
         out.copyFrom(in);
-        if(stmt instanceof DefinitionStmt def_stmt) {
-            LValue def = def_stmt.getLValue();
-            if(def instanceof Var var && canHoldInt(var)) {
-                Value value = evaluate(def_stmt.getRValue(), in);
-                out.update(var, value);
-            }
+        if (stmt instanceof DefinitionStmt<?, ?> defStmt &&
+                defStmt.getLValue() instanceof Var var && canHoldInt(var)) {
+            out.update(var, evaluate(defStmt.getRValue(), in));
         }
         return !oldOut.equals(out);
     }
@@ -254,4 +271,208 @@ public class ConstantPropagation extends
         }
         return Value.getNAC();
     }
+
+    /**
+     * Node transfer of the statements of a method, which compiles the
+     * definition of each statement once, so that the type checks and the
+     * dispatch on the kinds of expressions and operators are not repeated
+     * when the statement is transferred again. The compiled definitions
+     * are indexed by {@link Stmt#getIndex()}.
+     * <p>
+     * As the analysis instance is shared by the methods being analyzed
+     * (possibly in parallel), such per-method state is kept in this class
+     * instead of {@link ConstantPropagation}.
+     */
+    public static class MethodTransfer {
+
+        private final IR ir;
+
+        private final Definition[] definitions;
+
+        public MethodTransfer(IR ir) {
+            this.ir = ir;
+            // entry and exit nodes of the CFG are indexed after
+            // all statements of the IR
+            definitions = new Definition[ir.getStmts().size() + 2];
+        }
+
+        /**
+         * @return true if given statement is in the IR of this transfer.
+         * This takes constant time, thus a client which transfers
+         * statements of different methods can check if the transfer of
+         * the last method is applicable before looking up the method
+         * of the statement. Note that the entry and exit nodes of
+         * the CFG are not in the IR.
+         */
+        public boolean contains(Stmt stmt) {
+            int index = stmt.getIndex();
+            return 0 <= index && index < definitions.length - 2 &&
+                    ir.getStmt(index) == stmt;
+        }
+
+        /**
+         * Same as {@link ConstantPropagation#transferNode(Stmt, CPFact, CPFact)}
+         * for the statements of the method.
+         */
+        public boolean transferNode(Stmt stmt, CPFact in, CPFact out) {
+            // copy() takes constant time as CPFact shares its persistent trie
+            CPFact oldOut = out.copy();
+            out.copyFrom(in);
+            Definition def = definitions[stmt.getIndex()];
+            if (def == null) {
+                def = definitions[stmt.getIndex()] = compile(stmt);
+            }
+            if (def != Definition.NONE) {
+                out.update(def.var(), def.rhs().apply(in));
+            }
+            return !oldOut.equals(out);
+        }
+    }
+
+    /**
+     * Constant propagation on a single method, which transfers
+     * statements via a {@link MethodTransfer}.
+     */
+    private class CompiledConstantPropagation
+            implements DataflowAnalysis<Stmt, CPFact> {
+
+        private final MethodTransfer transfer;
+
+        private CompiledConstantPropagation(IR ir) {
+            transfer = new MethodTransfer(ir);
+        }
+
+        @Override
+        public boolean isForward() {
+            return ConstantPropagation.this.isForward();
+        }
+
+        @Override
+        public CPFact newBoundaryFact(CFG<Stmt> cfg) {
+            return ConstantPropagation.this.newBoundaryFact(cfg);
+        }
+
+        @Override
+        public CPFact newInitialFact() {
+            return ConstantPropagation.this.newInitialFact();
+        }
+
+        @Override
+        public void meetInto(CPFact fact, CPFact target) {
+            ConstantPropagation.this.meetInto(fact, target);
+        }
+
+        @Override
+        public boolean transferNode(Stmt stmt, CPFact in, CPFact out) {
+            return transfer.transferNode(stmt, in, out);
+        }
+
+        @Override
+        public boolean needTransferEdge(Edge<Stmt> edge) {
+            return ConstantPropagation.this.needTransferEdge(edge);
+        }
+
+        @Override
+        public CPFact transferEdge(Edge<Stmt> edge, CPFact nodeFact) {
+            return ConstantPropagation.this.transferEdge(edge, nodeFact);
+        }
+    }
+
+    /**
+     * Definition of an int variable, whose right-hand side is compiled
+     * to a function from IN fact to {@link Value}.
+     */
+    private record Definition(Var var, Function<CPFact, Value> rhs) {
+
+        /**
+         * Represents statements which do not define any int variable.
+         */
+        private static final Definition NONE = new Definition(null, null);
+    }
+
+    private static Definition compile(Stmt stmt) {
+        if (stmt instanceof DefinitionStmt<?, ?> defStmt &&
+                defStmt.getLValue() instanceof Var var && canHoldInt(var)) {
+            return new Definition(var, compile(defStmt.getRValue()));
+        }
+        return Definition.NONE;
+    }
+
+    /**
+     * Compiles given expression to a function which gives the same
+     * {@link Value} as {@link #evaluate(Exp, CPFact)}.
+     */
+    private static Function<CPFact, Value> compile(Exp exp) {
+        if (exp instanceof Var var) {
+            return in -> in.get(var);
+        }
+        if (exp instanceof IntLiteral intLiteral) {
+            Value value = Value.makeConstant(intLiteral.getValue());
+            return in -> value;
+        }
+        if (exp instanceof BinaryExp binaryExp &&
+                canHoldInt(binaryExp.getOperand1()) &&
+                canHoldInt(binaryExp.getOperand2())) {
+            Var var1 = binaryExp.getOperand1();
+            Var var2 = binaryExp.getOperand2();
+            IntBinaryOperator op = getOperator(binaryExp);
+            // division by constant zero gives UNDEF
+            boolean isDiv = binaryExp instanceof ArithmeticExp arithmeticExp &&
+                    (arithmeticExp.getOperator() == ArithmeticExp.Op.DIV ||
+                            arithmeticExp.getOperator() == ArithmeticExp.Op.REM);
+            return in -> {
+                Value left = in.get(var1);
+                Value right = in.get(var2);
+                if (isDiv && right.isConstant() && right.getConstant() == 0) {
+                    return Value.getUndef();
+                }
+                if (left.isConstant() && right.isConstant()) {
+                    return op == null ? Value.getNAC() : Value.makeConstant(
+                            op.applyAsInt(left.getConstant(), right.getConstant()));
+                }
+                return left.isNAC() || right.isNAC() ?
+                        Value.getNAC() : Value.getUndef();
+            };
+        }
+        Value nac = Value.getNAC();
+        return in -> nac;
+    }
+
+    /**
+     * @return the int operation of given binary expression,
+     * or null if the expression has no such operation.
+     */
+    private static IntBinaryOperator getOperator(BinaryExp exp) {
+        if (exp instanceof ArithmeticExp arithmeticExp) {
+            return switch (arithmeticExp.getOperator()) {
+                case ADD -> (x, y) -> x + y;
+                case SUB -> (x, y) -> x - y;
+                case MUL -> (x, y) -> x * y;
+                case DIV -> (x, y) -> x / y;
+                case REM -> (x, y) -> x % y;
+            };
+        } else if (exp instanceof BitwiseExp bitwiseExp) {
+            return switch (bitwiseExp.getOperator()) {
+                case OR -> (x, y) -> x | y;
+                case AND -> (x, y) -> x & y;
+                case XOR -> (x, y) -> x ^ y;
+            };
+        } else if (exp instanceof ShiftExp shiftExp) {
+            return switch (shiftExp.getOperator()) {
+                case SHL -> (x, y) -> x << y;
+                case SHR -> (x, y) -> x >> y;
+                case USHR -> (x, y) -> x >>> y;
+            };
+        } else if (exp instanceof ConditionExp conditionExp) {
+            return switch (conditionExp.getOperator()) {
+                case EQ -> (x, y) -> x == y ? 1 : 0;
+                case NE -> (x, y) -> x != y ? 1 : 0;
+                case LT -> (x, y) -> x < y ? 1 : 0;
+                case GT -> (x, y) -> x > y ? 1 : 0;
+                case LE -> (x, y) -> x <= y ? 1 : 0;
+                case GE -> (x, y) -> x >= y ? 1 : 0;
+            };
+        }
+        return null;
+    }
 }
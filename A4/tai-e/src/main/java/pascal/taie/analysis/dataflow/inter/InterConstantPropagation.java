@@ -36,8 +36,10 @@ import pascal.taie.ir.exp.Var;
 import pascal.taie.ir.stmt.Invoke;
 import pascal.taie.ir.stmt.Stmt;
 import pascal.taie.language.classes.JMethod;
+import pascal.taie.util.collection.Maps;
 
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -50,11 +52,36 @@ public class InterConstantPropagation extends
 
     private final ConstantPropagation cp;
 
+    /**
+     * Node transfers of the methods in the ICFG, which are only kept
+     * while the solver is running.
+     */
+    private Map<JMethod, ConstantPropagation.MethodTransfer> transfers;
+
+    /**
+     * Transfer of the method containing the last transferred non-call node.
+     * As the solver mostly transfers nodes of the same method in a row,
+     * this saves looking up the containing method and its transfer
+     * for most nodes.
+     */
+    private ConstantPropagation.MethodTransfer lastTransfer;
+
     public InterConstantPropagation(AnalysisConfig config) {
         super(config);
         cp = new ConstantPropagation(new AnalysisConfig(ConstantPropagation.ID));
     }
 
+    @Override
+    protected void initialize() {
+        transfers = Maps.newMap();
+    }
+
+    @Override
+    protected void finish() {
+        transfers = null;
+        lastTransfer = null;
+    }
+
     @Override
     public boolean isForward() {
         return cp.isForward();
@@ -94,7 +121,14 @@ public class InterConstantPropagation extends
     protected boolean transferNonCallNode(Stmt stmt, CPFact in, CPFact out) {
         // TODO - finish me
         //return false;
-        return cp.transferNode(stmt, in, out);//same as intraprocedural constant propagation
+        //same as intraprocedural constant propagation
+        ConstantPropagation.MethodTransfer transfer = lastTransfer;
+        if (transfer == null || !transfer.contains(stmt)) {
+            transfer = lastTransfer = transfers.computeIfAbsent(
+                    icfg.getContainingMethodOf(stmt),
+                    m -> new ConstantPropagation.MethodTransfer(m.getIR()));
+        }
+        return transfer.transferNode(stmt, in, out);
     }
 
     @Override
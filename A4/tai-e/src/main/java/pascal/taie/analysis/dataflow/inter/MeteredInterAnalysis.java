@@ -0,0 +1,119 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.dataflow.inter;
+
+import pascal.taie.analysis.dataflow.solver.SolverMetrics;
+import pascal.taie.analysis.graph.icfg.ICFG;
+import pascal.taie.analysis.graph.icfg.ICFGEdge;
+
+import java.util.Map;
+
+/**
+ * Decorates an inter-procedural data-flow analysis to record
+ * {@link SolverMetrics} for each method, i.e., the containing method
+ * of the nodes which are transferred. Only used when option "metrics"
+ * is enabled, so that {@link InterSolver} is not instrumented otherwise.
+ * <p>
+ * The solver transfers the in-edges of a node and meets their facts
+ * right before transferring the node, thus edge transfers and meets are
+ * attributed to the method of the target node of the last transferred
+ * edge. Every node transfer counts as an iteration, and the time of a
+ * method is the time spent in the transfer and meet functions for it.
+ *
+ * @param <Method> type of ICFG methods
+ * @param <Node>   type of ICFG nodes
+ * @param <Fact>   type of data-flow facts
+ */
+class MeteredInterAnalysis<Method, Node, Fact>
+        implements InterDataflowAnalysis<Node, Fact> {
+
+    private final InterDataflowAnalysis<Node, Fact> analysis;
+
+    private final ICFG<Method, Node> icfg;
+
+    private final Map<Method, SolverMetrics> metrics;
+
+    /**
+     * Metrics of the method of the node which is being visited.
+     */
+    private SolverMetrics current;
+
+    MeteredInterAnalysis(InterDataflowAnalysis<Node, Fact> analysis,
+                         ICFG<Method, Node> icfg,
+                         Map<Method, SolverMetrics> metrics) {
+        this.analysis = analysis;
+        this.icfg = icfg;
+        this.metrics = metrics;
+    }
+
+    private SolverMetrics getMetrics(Node node) {
+        return metrics.computeIfAbsent(icfg.getContainingMethodOf(node),
+                unused -> new SolverMetrics());
+    }
+
+    @Override
+    public boolean isForward() {
+        return analysis.isForward();
+    }
+
+    @Override
+    public Fact newBoundaryFact(Node boundary) {
+        return analysis.newBoundaryFact(boundary);
+    }
+
+    @Override
+    public Fact newInitialFact() {
+        return analysis.newInitialFact();
+    }
+
+    @Override
+    public void meetInto(Fact fact, Fact target) {
+        long start = System.nanoTime();
+        analysis.meetInto(fact, target);
+        if (current != null) {
+            current.addTime(System.nanoTime() - start);
+            current.countMeet();
+        }
+    }
+
+    @Override
+    public boolean transferNode(Node node, Fact in, Fact out) {
+        current = getMetrics(node);
+        long start = System.nanoTime();
+        boolean changed = analysis.transferNode(node, in, out);
+        current.addTime(System.nanoTime() - start);
+        current.addIterations(1);
+        current.countTransfer(changed);
+        return changed;
+    }
+
+    @Override
+    public Fact transferEdge(ICFGEdge<Node> edge, Fact out) {
+        current = getMetrics(analysis.isForward() ?
+                edge.getTarget() : edge.getSource());
+        long start = System.nanoTime();
+        Fact fact = analysis.transferEdge(edge, out);
+        current.addTime(System.nanoTime() - start);
+        return fact;
+    }
+}
@@ -29,21 +29,69 @@ import pascal.taie.language.classes.ClassHierarchy;
 import pascal.taie.language.classes.JClass;
 import pascal.taie.language.classes.JMethod;
 import pascal.taie.language.classes.Subsignature;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
 
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Implementation of the CHA algorithm.
+ * <p>
+ * Many call sites share the same method reference, thus the targets of
+ * virtual calls are cached by method reference, and the results of dispatch
+ * are cached by class and subsignature. The subtypes of the declaring class
+ * of a method reference are retrieved via {@link HierarchyNumbering}.
+ * <p>
+ * If parallelism is given, the call graph is built level by level:
+ * the call sites of the methods which become reachable in a level
+ * (the frontier) are resolved concurrently, and the resulting edges are
+ * added to the call graph by the building thread when the level is joined,
+ * so that the call graph itself needs no synchronization. The callees
+ * which have not been reached form the frontier of the next level.
+ * The caches are concurrent maps, thus they are shared by all threads.
  */
 class CHABuilder implements CGBuilder<Invoke, JMethod> {
 
+    /**
+     * Parallelism of building call graph. If it is negative, the call graph
+     * is built sequentially; if it is 0, the common pool is used.
+     */
+    private final int parallelism;
+
     private ClassHierarchy hierarchy;
 
+    private HierarchyNumbering numbering;
+
+    /**
+     * Caches the targets of virtual calls (including interface calls).
+     */
+    private Map<MethodRef, Set<JMethod>> virtualTargets;
+
+    /**
+     * Caches the non-null results of {@link #dispatch(JClass, Subsignature)}.
+     */
+    private Map<JClass, Map<Subsignature, JMethod>> dispatchTable;
+
+    CHABuilder() {
+        this(-1);
+    }
+
+    CHABuilder(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
     @Override
     public CallGraph<Invoke, JMethod> build() {
         hierarchy = World.get().getClassHierarchy();
-        return buildCallGraph(World.get().getMainMethod());
+        numbering = new HierarchyNumbering(hierarchy);
+        virtualTargets = Maps.newConcurrentMap();
+        dispatchTable = Maps.newConcurrentMap();
+        JMethod entry = World.get().getMainMethod();
+        return parallelism < 0 ? buildCallGraph(entry) :
+                buildCallGraphInParallel(entry);
     }
 
     private CallGraph<Invoke, JMethod> buildCallGraph(JMethod entry) {
@@ -79,6 +127,69 @@ class CHABuilder implements CGBuilder<Invoke, JMethod> {
         return callGraph;
     }
 
+    private CallGraph<Invoke, JMethod> buildCallGraphInParallel(JMethod entry) {
+        DefaultCallGraph callGraph = new DefaultCallGraph();
+        callGraph.addEntryMethod(entry);
+        ForkJoinPool pool = parallelism > 0 ?
+                new ForkJoinPool(parallelism) : ForkJoinPool.commonPool();
+        try {
+            Set<JMethod> reached = Sets.newSet();
+            reached.add(entry);
+            List<JMethod> frontier = List.of(entry);
+            while (!frontier.isEmpty()) {
+                List<ForkJoinTask<List<Edge<Invoke, JMethod>>>> tasks = frontier.stream()
+                        .map(m -> pool.submit(() -> expand(m)))
+                        .toList();
+                // join the tasks in the order of the frontier, thus the
+                // call graph does not depend on the scheduling of tasks.
+                // Each method is added to the frontier only once,
+                // as its IR must be built by a single task
+                List<JMethod> next = new ArrayList<>();
+                for (int i = 0; i < frontier.size(); ++i) {
+                    callGraph.addReachableMethod(frontier.get(i));
+                    for (Edge<Invoke, JMethod> edge : tasks.get(i).join()) {
+                        callGraph.addEdge(edge);
+                        if (reached.add(edge.getCallee())) {
+                            next.add(edge.getCallee());
+                        }
+                    }
+                }
+                frontier = next;
+            }
+        } finally {
+            if (pool != ForkJoinPool.commonPool()) {
+                pool.shutdown();
+            }
+        }
+        return callGraph;
+    }
+
+    /**
+     * Resolves the call sites of given method, which builds the IR of
+     * the method if it has not been built.
+     *
+     * @return the edges out of the call sites of the method.
+     */
+    private List<Edge<Invoke, JMethod>> expand(JMethod method) {
+        List<Edge<Invoke, JMethod>> edges = new ArrayList<>();
+        if (method.isAbstract()) {
+            return edges;
+        }
+        // call sites are retrieved from the IR, as the call graph
+        // is only modified by the building thread
+        method.getIR().forEach(stmt -> {
+            if (stmt instanceof Invoke callSite) {
+                CallKind kind = CallGraphs.getCallKind(callSite);
+                if (kind != CallKind.DYNAMIC) {
+                    for (JMethod target : resolve(callSite)) {
+                        edges.add(new Edge<>(kind, callSite, target));
+                    }
+                }
+            }
+        });
+        return edges;
+    }
+
     /**
      * Resolves call targets (callees) of a call site via CHA.
      */
@@ -100,26 +211,27 @@ class CHABuilder implements CGBuilder<Invoke, JMethod> {
             }
         }
         else{//Virtual Call. 包括InvokeVirtual和InvokeInterface
-            JClass callsite_class = methodRef.getDeclaringClass();
-            Queue<JClass> queue = new LinkedList<>();
-            //遍历callsite_class及其的所有子类
-            queue.add(callsite_class);
-            while(!queue.isEmpty()) {
-                JClass current = queue.poll();
-                JMethod method = dispatch(current, methodRef.getSubsignature());
-                if (method != null) {
-                    res.add(method);
-                }
-                if(current.isInterface()){
-                    queue.addAll(hierarchy.getDirectImplementorsOf(current));
-                    queue.addAll(hierarchy.getDirectSubinterfacesOf(current));
-                }
-                else queue.addAll(hierarchy.getDirectSubclassesOf(current));
-            }
+            return virtualTargets.computeIfAbsent(methodRef, this::resolveVirtual);
         }
         return res;
     }
 
+    /**
+     * Resolves the targets of virtual calls to given method reference by
+     * dispatching on all subtypes of its declaring class.
+     */
+    private Set<JMethod> resolveVirtual(MethodRef methodRef) {
+        Subsignature subsignature = methodRef.getSubsignature();
+        Set<JMethod> targets = Sets.newHybridSet();
+        for (JClass subtype : numbering.getSubtypesOf(methodRef.getDeclaringClass())) {
+            JMethod method = dispatch(subtype, subsignature);
+            if (method != null) {
+                targets.add(method);
+            }
+        }
+        return targets;
+    }
+
     /**
      * Looks up the target method based on given class and method subsignature.
      *
@@ -129,15 +241,20 @@ class CHABuilder implements CGBuilder<Invoke, JMethod> {
     private JMethod dispatch(JClass jclass, Subsignature subsignature) {
         // TODO - finish me
         //return null;
-        JMethod method = jclass.getDeclaredMethod(subsignature);
-        if(method != null && !method.isAbstract()) {
+        Map<Subsignature, JMethod> table = dispatchTable.computeIfAbsent(
+                jclass, c -> Maps.newConcurrentMap());
+        JMethod method = table.get(subsignature);
+        if (method != null) {
             return method;
         }
-        else if(jclass.getSuperClass() == null) {
-            return null;
+        method = jclass.getDeclaredMethod(subsignature);
+        if(method == null || method.isAbstract()) {
+            method = jclass.getSuperClass() == null ? null :
+                    dispatch(jclass.getSuperClass(), subsignature);
         }
-        else {
-            return dispatch(jclass.getSuperClass(), subsignature);
+        if (method != null) {
+            table.put(subsignature, method);
         }
+        return method;
     }
 }
@@ -32,9 +32,27 @@ import pascal.taie.ir.stmt.Invoke;
 import pascal.taie.language.classes.ClassHierarchyImpl;
 import pascal.taie.language.classes.JMethod;
 
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Comparator;
 
+/**
+ * Builds call graph via the algorithm given by option "algorithm",
+ * i.e., "cha" or "rta".
+ * If option "parallelism" is given, CHA builds call graph in parallel
+ * with the given number of threads (0 means the common pool).
+ * If option "compact" is true, the result is converted to
+ * a {@link CompactCallGraph}.
+ * <p>
+ * If option "snapshot" is given, the call graph is loaded from the
+ * {@link CallGraphSnapshot} at the given path if the file exists and
+ * the snapshot is built by the same algorithm for the same program;
+ * otherwise, the call graph is built and its snapshot is written
+ * to the path.
+ */
 public class CallGraphBuilder extends ProgramAnalysis {
 
     public static final String ID = "cg";
@@ -55,19 +73,79 @@ public class CallGraphBuilder extends ProgramAnalysis {
 
     @Override
     public CallGraph<Invoke, JMethod> analyze() {
+        String snapshot = getOptions().getString("snapshot");
+        if (snapshot != null && Files.exists(Path.of(snapshot))) {
+            CallGraph<Invoke, JMethod> callGraph = loadSnapshot(Path.of(snapshot));
+            if (callGraph != null) {
+                takeAction(callGraph);
+                return callGraph;
+            }
+        }
         CGBuilder<Invoke, JMethod> builder;
         if (algorithm.equals("cha")) {
-            builder = new CHABuilder();
+            Integer parallelism = getParallelism();
+            builder = parallelism == null ?
+                    new CHABuilder() : new CHABuilder(parallelism);
+        } else if (algorithm.equals("rta")) {
+            builder = new RTABuilder();
         } else {
             throw new ConfigException("Unknown call graph building algorithm: " + algorithm);
         }
         ClassHierarchyImpl.setCheckCHA(true);
         CallGraph<Invoke, JMethod> callGraph = builder.build();
         ClassHierarchyImpl.setCheckCHA(false);
+        if (snapshot != null) {
+            writeSnapshot(callGraph, Path.of(snapshot));
+        }
+        if (getOptions().getBooleanOrDefault("compact", false)) {
+            callGraph = CompactCallGraph.of(callGraph);
+        }
         takeAction(callGraph);
         return callGraph;
     }
 
+    /**
+     * @return the call graph in the snapshot at given path, or null if
+     * the snapshot is out of date, i.e., it is built by another algorithm
+     * or for another program.
+     */
+    private @Nullable CallGraph<Invoke, JMethod> loadSnapshot(Path path) {
+        try {
+            CallGraph<Invoke, JMethod> callGraph = CallGraphSnapshot.load(path, algorithm);
+            if (callGraph == null) {
+                logger.info("Call graph snapshot {} is out of date, rebuilding", path);
+            } else {
+                logger.info("Loaded call graph snapshot from {}", path);
+            }
+            return callGraph;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load call graph snapshot", e);
+        }
+    }
+
+    private void writeSnapshot(CallGraph<Invoke, JMethod> callGraph, Path path) {
+        try {
+            CallGraphSnapshot.write(callGraph, algorithm, path);
+            logger.info("Wrote call graph snapshot to {}", path);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write call graph snapshot", e);
+        }
+    }
+
+    /**
+     * @return the value of option "parallelism",
+     * or null if the option is absent.
+     */
+    private @Nullable Integer getParallelism() {
+        Object value = getOptions().get("parallelism");
+        if (value == null || value instanceof Integer) {
+            return (Integer) value;
+        } else {
+            throw new ConfigException("Invalid parallelism option of "
+                    + ID + ": " + value);
+        }
+    }
+
     private void takeAction(CallGraph<Invoke, JMethod> callGraph) {
         String action = getOptions().getString("action");
         if (action == null) {
@@ -0,0 +1,770 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import pascal.taie.World;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.classes.StringReps;
+import pascal.taie.language.classes.Subsignature;
+import pascal.taie.util.AnalysisException;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import javax.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A read-only call graph which is loaded from a binary snapshot file.
+ * <p>
+ * The file is mapped into memory via {@link FileChannel#map}, and queries
+ * read the mapped arrays directly, thus loading a snapshot takes little time
+ * and heap space. Methods are resolved from their signatures via the class
+ * hierarchy of current {@link World} when they are queried, and call sites
+ * are the {@link Invoke}s at the recorded indexes in the IRs of the methods.
+ * Thus, a snapshot can only be loaded for the same program which it is
+ * written for: the header records the algorithm which built the call graph
+ * and a digest of the program, and {@link #load} rejects a snapshot
+ * whose algorithm or digest differs from the current ones.
+ * The digest covers the class hierarchy (classes, their super types and
+ * declared methods) and the main method, but not method bodies, as
+ * digesting them would require building the IRs of all methods.
+ * Instead, the snapshot also records a digest of the call sites in each
+ * method, which is checked against the IR of the method when the method
+ * is resolved, and an {@link AnalysisException} is thrown if the call
+ * sites in the method have changed since the snapshot was written.
+ * <p>
+ * The file consists of a header (magic number, version, the length of
+ * the algorithm name, the UTF-8 encoded algorithm name padded to 4 bytes,
+ * the program digest, and the numbers of methods, call sites, edges and
+ * entry methods), followed by the digests of the call sites in each method
+ * (one big-endian long per method), and the following arrays of
+ * big-endian ints:
+ * <ul>
+ *     <li>entry methods;</li>
+ *     <li>start of the call sites of each method, where call sites are
+ *     grouped by their containers and sorted by their indexes;</li>
+ *     <li>index and container of each call site;</li>
+ *     <li>start of the edges out of each call site, and callee of
+ *     each edge;</li>
+ *     <li>start of the edges into each method, and the edges into
+ *     each method;</li>
+ *     <li>start of the signature of each method in the string table.</li>
+ * </ul>
+ * The arrays are followed by the call kind of each edge (one byte per edge),
+ * and the string table, which contains the UTF-8 encoded signatures of methods. Methods are sorted
+ * by their encoded signatures, so that they can be looked up by binary search.
+ * The size of a snapshot is limited to 2GB.
+ */
+public class CallGraphSnapshot implements CallGraph<Invoke, JMethod> {
+
+    private static final int MAGIC = 0x54434753; // "TCGS"
+
+    private static final int VERSION = 3;
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private static final int DIGEST_LENGTH = 32;
+
+    private static final CallKind[] KINDS = CallKind.values();
+
+    private final ClassHierarchy hierarchy;
+
+    private final String algorithm;
+
+    private final byte[] digest;
+
+    private final int nMethods;
+
+    private final int nCallSites;
+
+    private final int nEdges;
+
+    private final LongBuffer callSiteDigests;
+
+    private final IntBuffer entries;
+
+    private final IntBuffer callSiteStart;
+
+    private final IntBuffer callSiteIndexes;
+
+    private final IntBuffer containers;
+
+    private final IntBuffer edgeStart;
+
+    private final IntBuffer edgeCallees;
+
+    private final IntBuffer inStart;
+
+    private final IntBuffer inEdges;
+
+    private final IntBuffer nameStart;
+
+    private final ByteBuffer edgeKinds;
+
+    private final ByteBuffer names;
+
+    /**
+     * Methods which have been resolved, indexed by their numbers.
+     */
+    private final JMethod[] methods;
+
+    /**
+     * Numbers of the methods which have been looked up,
+     * where -1 means the method is not in this call graph.
+     */
+    private final Map<JMethod, Integer> methodIds = Maps.newConcurrentMap();
+
+    private CallGraphSnapshot(ByteBuffer buffer, ClassHierarchy hierarchy)
+            throws IOException {
+        this.hierarchy = hierarchy;
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Not a call graph snapshot of version " + VERSION);
+        }
+        byte[] name = new byte[buffer.getInt()];
+        buffer.get(name);
+        buffer.position(buffer.position() + padding(name.length));
+        algorithm = new String(name, StandardCharsets.UTF_8);
+        digest = new byte[DIGEST_LENGTH];
+        buffer.get(digest);
+        nMethods = buffer.getInt();
+        nCallSites = buffer.getInt();
+        nEdges = buffer.getInt();
+        int nEntries = buffer.getInt();
+        callSiteDigests = longs(buffer, nMethods);
+        entries = ints(buffer, nEntries);
+        callSiteStart = ints(buffer, nMethods + 1);
+        callSiteIndexes = ints(buffer, nCallSites);
+        containers = ints(buffer, nCallSites);
+        edgeStart = ints(buffer, nCallSites + 1);
+        edgeCallees = ints(buffer, nEdges);
+        inStart = ints(buffer, nMethods + 1);
+        inEdges = ints(buffer, nEdges);
+        nameStart = ints(buffer, nMethods + 1);
+        edgeKinds = bytes(buffer, nEdges);
+        names = bytes(buffer, nameStart.get(nMethods));
+        methods = new JMethod[nMethods];
+    }
+
+    private static IntBuffer ints(ByteBuffer buffer, int length) {
+        IntBuffer result = buffer.slice(buffer.position(), length * 4).asIntBuffer();
+        buffer.position(buffer.position() + length * 4);
+        return result;
+    }
+
+    private static LongBuffer longs(ByteBuffer buffer, int length) {
+        LongBuffer result = buffer.slice(buffer.position(), length * 8).asLongBuffer();
+        buffer.position(buffer.position() + length * 8);
+        return result;
+    }
+
+    private static ByteBuffer bytes(ByteBuffer buffer, int length) {
+        ByteBuffer result = buffer.slice(buffer.position(), length);
+        buffer.position(buffer.position() + length);
+        return result;
+    }
+
+    private static int padding(int length) {
+        return -length & 3;
+    }
+
+    /**
+     * Loads a call graph snapshot for the program in current {@link World}.
+     *
+     * @return the loaded snapshot, or null if the snapshot is built by
+     * an algorithm other than given one, or for a program other than
+     * the current one.
+     */
+    public static @Nullable CallGraphSnapshot load(Path path, String algorithm)
+            throws IOException {
+        CallGraphSnapshot snapshot;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            snapshot = new CallGraphSnapshot(
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()),
+                    World.get().getClassHierarchy());
+        }
+        if (snapshot.algorithm.equals(algorithm) &&
+                Arrays.equals(snapshot.digest, digest(snapshot.hierarchy))) {
+            return snapshot;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Computes the digest of the program in current {@link World},
+     * i.e., of its class hierarchy and main method.
+     */
+    private static byte[] digest(ClassHierarchy hierarchy) {
+        MessageDigest md = newDigest();
+        hierarchy.allClasses()
+                .sorted(Comparator.comparing(JClass::getName))
+                .forEach(c -> {
+                    update(md, c.getName());
+                    JClass superClass = c.getSuperClass();
+                    update(md, superClass == null ? "" : superClass.getName());
+                    c.getInterfaces().stream()
+                            .map(JClass::getName)
+                            .sorted()
+                            .forEach(i -> update(md, i));
+                    c.getDeclaredMethods().stream()
+                            .map(m -> m.getSubsignature().toString())
+                            .sorted()
+                            .forEach(m -> update(md, m));
+                    // separate classes
+                    md.update((byte) 0);
+                });
+        JMethod main = World.get().getMainMethod();
+        update(md, main == null ? "" : main.getSignature());
+        return md.digest();
+    }
+
+    /**
+     * Computes the digest of the call sites in given method, i.e., of
+     * the indexes, call kinds and method references of the invocations
+     * in the IR of the method.
+     */
+    private static long digest(JMethod method) {
+        MessageDigest md = newDigest();
+        if (!method.isAbstract()) {
+            for (Stmt stmt : method.getIR()) {
+                if (stmt instanceof Invoke invoke) {
+                    update(md, invoke.getIndex() + " " +
+                            CallGraphs.getCallKind(invoke) + " " +
+                            invoke.getMethodRef());
+                }
+            }
+        }
+        return ByteBuffer.wrap(md.digest()).getLong();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AnalysisException(e);
+        }
+    }
+
+    private static void update(MessageDigest md, String s) {
+        md.update(encode(s));
+        md.update((byte) '\n');
+    }
+
+    /**
+     * Writes a snapshot of given call graph, which is built by given
+     * algorithm for the program in current {@link World}, to given path.
+     * All callees in the call graph must be reachable methods.
+     */
+    public static void write(CallGraph<Invoke, JMethod> callGraph,
+                             String algorithm, Path path) throws IOException {
+        byte[] digest = digest(World.get().getClassHierarchy());
+        // number methods and call sites
+        Map<JMethod, byte[]> nameMap = Maps.newMap(callGraph.getNumberOfMethods());
+        callGraph.reachableMethods().forEach(m -> nameMap.put(m, encode(m.getSignature())));
+        List<JMethod> methods = new ArrayList<>(nameMap.keySet());
+        methods.sort((m1, m2) -> Arrays.compareUnsigned(nameMap.get(m1), nameMap.get(m2)));
+        Map<JMethod, Integer> methodIds = Maps.newMap(methods.size());
+        methods.forEach(m -> methodIds.put(m, methodIds.size()));
+        List<Invoke> callSites = new ArrayList<>();
+        int[] callSiteStart = new int[methods.size() + 1];
+        for (int m = 0; m < methods.size(); ++m) {
+            callSiteStart[m] = callSites.size();
+            callGraph.callSitesIn(methods.get(m))
+                    .sorted(Comparator.comparingInt(Invoke::getIndex))
+                    .forEach(callSites::add);
+        }
+        callSiteStart[methods.size()] = callSites.size();
+        // collect edges grouped by call sites
+        int nEdges = callGraph.getNumberOfEdges();
+        int[] edgeStart = new int[callSites.size() + 1];
+        int[] edgeCallees = new int[nEdges];
+        byte[] edgeKinds = new byte[nEdges];
+        int e = 0;
+        for (int cs = 0; cs < callSites.size(); ++cs) {
+            edgeStart[cs] = e;
+            for (Iterator<Edge<Invoke, JMethod>> it =
+                 callGraph.edgesOutOf(callSites.get(cs)).iterator(); it.hasNext(); ++e) {
+                Edge<Invoke, JMethod> edge = it.next();
+                Integer callee = methodIds.get(edge.getCallee());
+                if (callee == null) {
+                    throw new IllegalArgumentException(
+                            "Method " + edge.getCallee() + " is not reachable");
+                }
+                edgeCallees[e] = callee;
+                edgeKinds[e] = (byte) edge.getKind().ordinal();
+            }
+        }
+        edgeStart[callSites.size()] = e;
+        if (e != nEdges) {
+            throw new IllegalArgumentException(
+                    "Call graph has edges out of unreachable methods");
+        }
+        // index edges by callees via counting sort
+        int[] inStart = new int[methods.size() + 1];
+        for (int callee : edgeCallees) {
+            ++inStart[callee + 1];
+        }
+        for (int m = 0; m < methods.size(); ++m) {
+            inStart[m + 1] += inStart[m];
+        }
+        int[] inEdges = new int[nEdges];
+        int[] next = Arrays.copyOf(inStart, methods.size());
+        for (int i = 0; i < nEdges; ++i) {
+            inEdges[next[edgeCallees[i]]++] = i;
+        }
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            byte[] name = encode(algorithm);
+            out.writeInt(name.length);
+            out.write(name);
+            out.write(new byte[padding(name.length)]);
+            out.write(digest);
+            out.writeInt(methods.size());
+            out.writeInt(callSites.size());
+            out.writeInt(nEdges);
+            out.writeInt((int) callGraph.entryMethods().count());
+            for (JMethod method : methods) {
+                out.writeLong(digest(method));
+            }
+            for (JMethod entry : (Iterable<JMethod>) callGraph.entryMethods()::iterator) {
+                out.writeInt(methodIds.get(entry));
+            }
+            writeInts(out, callSiteStart);
+            for (Invoke callSite : callSites) {
+                out.writeInt(callSite.getIndex());
+            }
+            for (int m = 0; m < methods.size(); ++m) {
+                for (int cs = callSiteStart[m]; cs < callSiteStart[m + 1]; ++cs) {
+                    out.writeInt(m);
+                }
+            }
+            writeInts(out, edgeStart);
+            writeInts(out, edgeCallees);
+            writeInts(out, inStart);
+            writeInts(out, inEdges);
+            int start = 0;
+            for (JMethod method : methods) {
+                out.writeInt(start);
+                start += nameMap.get(method).length;
+            }
+            out.writeInt(start);
+            out.write(edgeKinds);
+            for (JMethod method : methods) {
+                out.write(nameMap.get(method));
+            }
+        }
+    }
+
+    private static void writeInts(DataOutputStream out, int[] ints)
+            throws IOException {
+        for (int i : ints) {
+            out.writeInt(i);
+        }
+    }
+
+    private static byte[] encode(String name) {
+        return name.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the number of given method, or -1 if the method
+     * is not in this call graph.
+     */
+    private int getMethodId(JMethod method) {
+        Integer id = methodIds.get(method);
+        if (id == null) {
+            id = searchMethod(method);
+            if (id >= 0) {
+                checkCallSites(id, method);
+                methods[id] = method;
+            }
+            methodIds.put(method, id);
+        }
+        return id;
+    }
+
+    /**
+     * Looks up the number of given method by its signature.
+     */
+    private int searchMethod(JMethod method) {
+        byte[] key = encode(method.getSignature());
+        int lo = 0, hi = nMethods - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compareName(mid, key);
+            if (cmp < 0) {
+                lo = mid + 1;
+            } else if (cmp > 0) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compareName(int method, byte[] key) {
+        int start = nameStart.get(method);
+        int length = nameStart.get(method + 1) - start;
+        for (int i = 0; i < Math.min(length, key.length); ++i) {
+            int cmp = Byte.compareUnsigned(names.get(start + i), key[i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - key.length;
+    }
+
+    private JMethod getMethod(int id) {
+        JMethod method = methods[id];
+        if (method == null) {
+            int start = nameStart.get(id);
+            byte[] name = new byte[nameStart.get(id + 1) - start];
+            names.get(start, name);
+            String signature = new String(name, StandardCharsets.UTF_8);
+            JClass jclass = hierarchy.getClass(StringReps.getClassNameOf(signature));
+            if (jclass != null) {
+                method = jclass.getDeclaredMethod(Subsignature.get(
+                        StringReps.getSubsignatureOf(signature)));
+            }
+            if (method == null) {
+                throw new AnalysisException("Method " + signature +
+                        " in call graph snapshot is not found");
+            }
+            checkCallSites(id, method);
+            methods[id] = method;
+            methodIds.put(method, id);
+        }
+        return method;
+    }
+
+    /**
+     * Checks that the call sites in given method are the same as
+     * the ones recorded in this snapshot.
+     */
+    private void checkCallSites(int id, JMethod method) {
+        if (callSiteDigests.get(id) != digest(method)) {
+            throw new AnalysisException("Call sites in " + method +
+                    " have changed since the call graph snapshot was written," +
+                    " please remove the out-of-date snapshot");
+        }
+    }
+
+    /**
+     * @return the number of given call site, or -1 if the call site
+     * is not in this call graph.
+     */
+    private int getCallSiteId(Invoke callSite) {
+        int m = getMethodId(callSite.getContainer());
+        if (m < 0) {
+            return -1;
+        }
+        int lo = callSiteStart.get(m), hi = callSiteStart.get(m + 1) - 1;
+        int index = callSite.getIndex();
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int midIndex = callSiteIndexes.get(mid);
+            if (midIndex < index) {
+                lo = mid + 1;
+            } else if (midIndex > index) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int getCallSiteId(Object o) {
+        return o instanceof Invoke callSite ? getCallSiteId(callSite) : -1;
+    }
+
+    private int getMethodId(Object o) {
+        return o instanceof JMethod method ? getMethodId(method) : -1;
+    }
+
+    private Invoke getCallSite(int id) {
+        return (Invoke) getMethod(containers.get(id))
+                .getIR().getStmt(callSiteIndexes.get(id));
+    }
+
+    private Edge<Invoke, JMethod> getEdge(int callSite, int e) {
+        return new Edge<>(KINDS[edgeKinds.get(e)],
+                getCallSite(callSite), getMethod(edgeCallees.get(e)));
+    }
+
+    /**
+     * @return the call site of given edge.
+     */
+    private int getCallSiteOf(int e) {
+        // the last call site whose edges start at or before e
+        int lo = 0, hi = nCallSites - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (edgeStart.get(mid) <= e) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    private IntStream edgesOutOf(int callSite) {
+        return IntStream.range(edgeStart.get(callSite), edgeStart.get(callSite + 1));
+    }
+
+    private IntStream edgesInTo(int method) {
+        return IntStream.range(inStart.get(method), inStart.get(method + 1))
+                .map(inEdges::get);
+    }
+
+    private IntStream edgesOutOfM(int method) {
+        return IntStream.range(edgeStart.get(callSiteStart.get(method)),
+                edgeStart.get(callSiteStart.get(method + 1)));
+    }
+
+    /**
+     * @return an unmodifiable set of the elements in given stream,
+     * which keeps the order of the elements.
+     */
+    private static <E> Set<E> toSet(Stream<E> stream) {
+        Set<E> set = Sets.newHybridOrderedSet();
+        stream.forEach(set::add);
+        return Collections.unmodifiableSet(set);
+    }
+
+    @Override
+    public Set<Invoke> getCallersOf(JMethod callee) {
+        int id = getMethodId(callee);
+        return id < 0 ? Set.of() : toSet(edgesInTo(id)
+                .mapToObj(e -> getCallSite(getCallSiteOf(e))));
+    }
+
+    @Override
+    public Set<JMethod> getCalleesOf(Invoke callSite) {
+        int id = getCallSiteId(callSite);
+        return id < 0 ? Set.of() : toSet(edgesOutOf(id)
+                .mapToObj(e -> getMethod(edgeCallees.get(e))));
+    }
+
+    @Override
+    public Set<JMethod> getCalleesOfM(JMethod caller) {
+        return getSuccsOf(caller);
+    }
+
+    @Override
+    public JMethod getContainerOf(Invoke callSite) {
+        return callSite.getContainer();
+    }
+
+    @Override
+    public Set<Invoke> getCallSitesIn(JMethod method) {
+        int id = getMethodId(method);
+        return id < 0 ? Set.of() : new RangeSet<>(this::getCallSite,
+                this::getCallSiteId, callSiteStart.get(id), callSiteStart.get(id + 1));
+    }
+
+    @Override
+    public Stream<Edge<Invoke, JMethod>> edgesOutOf(Invoke callSite) {
+        int id = getCallSiteId(callSite);
+        return id < 0 ? Stream.of() :
+                edgesOutOf(id).mapToObj(e -> getEdge(id, e));
+    }
+
+    @Override
+    public Stream<Edge<Invoke, JMethod>> edgesInTo(JMethod method) {
+        int id = getMethodId(method);
+        return id < 0 ? Stream.of() :
+                edgesInTo(id).mapToObj(e -> getEdge(getCallSiteOf(e), e));
+    }
+
+    @Override
+    public Stream<Edge<Invoke, JMethod>> edges() {
+        return IntStream.range(0, nCallSites)
+                .boxed()
+                .flatMap(cs -> edgesOutOf(cs).mapToObj(e -> getEdge(cs, e)));
+    }
+
+    @Override
+    public int getNumberOfEdges() {
+        return nEdges;
+    }
+
+    @Override
+    public Stream<JMethod> entryMethods() {
+        return IntStream.range(0, entries.limit())
+                .mapToObj(i -> getMethod(entries.get(i)));
+    }
+
+    @Override
+    public Stream<JMethod> reachableMethods() {
+        return IntStream.range(0, nMethods).mapToObj(this::getMethod);
+    }
+
+    @Override
+    public int getNumberOfMethods() {
+        return nMethods;
+    }
+
+    @Override
+    public boolean contains(JMethod method) {
+        return getMethodId(method) >= 0;
+    }
+
+    // Implementation for Graph interface.
+
+    @Override
+    public boolean hasNode(JMethod node) {
+        return contains(node);
+    }
+
+    @Override
+    public boolean hasEdge(JMethod source, JMethod target) {
+        int s = getMethodId(source), t = getMethodId(target);
+        return s >= 0 && t >= 0 &&
+                edgesOutOfM(s).anyMatch(e -> edgeCallees.get(e) == t);
+    }
+
+    @Override
+    public Set<MethodEdge<Invoke, JMethod>> getInEdgesOf(JMethod method) {
+        int id = getMethodId(method);
+        return id < 0 ? Set.of() : toSet(edgesInTo(id)
+                .mapToObj(e -> {
+                    Invoke callSite = getCallSite(getCallSiteOf(e));
+                    return new MethodEdge<>(callSite.getContainer(), method, callSite);
+                }));
+    }
+
+    @Override
+    public Set<MethodEdge<Invoke, JMethod>> getOutEdgesOf(JMethod method) {
+        int id = getMethodId(method);
+        return id < 0 ? Set.of() : toSet(edgesOutOfM(id)
+                .mapToObj(e -> new MethodEdge<>(method,
+                        getMethod(edgeCallees.get(e)), getCallSite(getCallSiteOf(e)))));
+    }
+
+    @Override
+    public Set<JMethod> getPredsOf(JMethod node) {
+        int id = getMethodId(node);
+        return id < 0 ? Set.of() : toSet(edgesInTo(id)
+                .mapToObj(e -> getMethod(containers.get(getCallSiteOf(e)))));
+    }
+
+    @Override
+    public Set<JMethod> getSuccsOf(JMethod node) {
+        int id = getMethodId(node);
+        return id < 0 ? Set.of() : toSet(edgesOutOfM(id)
+                .mapToObj(e -> getMethod(edgeCallees.get(e))));
+    }
+
+    @Override
+    public Set<JMethod> getNodes() {
+        return new RangeSet<>(this::getMethod, this::getMethodId, 0, nMethods);
+    }
+
+    // Implementation for StmtResult interface.
+
+    /**
+     * Only the call sites in reachable methods are relevant.
+     */
+    @Override
+    public boolean isRelevant(Stmt stmt) {
+        return getCallSiteId(stmt) >= 0;
+    }
+
+    @Override
+    public Set<JMethod> getResult(Stmt stmt) {
+        return stmt instanceof Invoke callSite ? getCalleesOf(callSite) : Set.of();
+    }
+
+    /**
+     * Unmodifiable set view of the elements numbered from {@code from}
+     * (inclusive) to {@code to} (exclusive).
+     */
+    private static class RangeSet<E> extends AbstractSet<E> {
+
+        private final IntFunction<E> elements;
+
+        private final ToIntFunction<Object> ids;
+
+        private final int from;
+
+        private final int to;
+
+        private RangeSet(IntFunction<E> elements, ToIntFunction<Object> ids,
+                         int from, int to) {
+            this.elements = elements;
+            this.ids = ids;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            int id = ids.applyAsInt(o);
+            return from <= id && id < to;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return IntStream.range(from, to).mapToObj(elements).iterator();
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+}
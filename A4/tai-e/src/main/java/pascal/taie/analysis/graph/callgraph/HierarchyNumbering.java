@@ -0,0 +1,141 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Numbers the (non-interface) classes of a class hierarchy in preorder
+ * of the subclass tree. The subclasses of each class C, including C itself,
+ * are numbered contiguously from pre(C) to last(C), thus all subclasses
+ * of C can be retrieved as an interval without traversing the hierarchy.
+ */
+class HierarchyNumbering {
+
+    private final ClassHierarchy hierarchy;
+
+    /**
+     * Classes in preorder, i.e., the class numbered i is classes.get(i).
+     */
+    private final List<JClass> classes = new ArrayList<>();
+
+    private final Map<JClass, Integer> preorder = Maps.newMap();
+
+    /**
+     * last[i] is the number of the last subclass of the class numbered i.
+     */
+    private final int[] last;
+
+    /**
+     * Caches the subtypes of interfaces, which are not intervals.
+     * This map may be accessed by multiple threads.
+     */
+    private final Map<JClass, List<JClass>> ifaceSubtypes = Maps.newConcurrentMap();
+
+    HierarchyNumbering(ClassHierarchy hierarchy) {
+        this.hierarchy = hierarchy;
+        List<Integer> lasts = new ArrayList<>();
+        hierarchy.allClasses()
+                .filter(c -> !c.isInterface())
+                .forEach(c -> {
+                    if (!preorder.containsKey(c)) {
+                        // number the whole tree which contains c
+                        JClass root = c;
+                        while (root.getSuperClass() != null) {
+                            root = root.getSuperClass();
+                        }
+                        number(root, lasts);
+                    }
+                });
+        last = lasts.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private void number(JClass jclass, List<Integer> lasts) {
+        int pre = classes.size();
+        preorder.put(jclass, pre);
+        classes.add(jclass);
+        lasts.add(pre);
+        hierarchy.getDirectSubclassesOf(jclass)
+                .forEach(subclass -> number(subclass, lasts));
+        lasts.set(pre, classes.size() - 1);
+    }
+
+    /**
+     * @return all subtypes of given class, including itself.
+     * For a class, the result contains all its subclasses; for an interface,
+     * the result contains all its subinterfaces and the classes that
+     * implement it directly or indirectly.
+     */
+    List<JClass> getSubtypesOf(JClass jclass) {
+        if (jclass.isInterface()) {
+            return ifaceSubtypes.computeIfAbsent(jclass, this::computeSubtypes);
+        } else {
+            int pre = preorder.get(jclass);
+            return Collections.unmodifiableList(
+                    classes.subList(pre, last[pre] + 1));
+        }
+    }
+
+    private List<JClass> computeSubtypes(JClass iface) {
+        List<JClass> subtypes = new ArrayList<>();
+        List<Integer> implementors = new ArrayList<>();
+        Set<JClass> visited = Sets.newSet();
+        Queue<JClass> queue = new ArrayDeque<>();
+        visited.add(iface);
+        queue.add(iface);
+        while (!queue.isEmpty()) {
+            JClass current = queue.poll();
+            subtypes.add(current);
+            hierarchy.getDirectImplementorsOf(current)
+                    .forEach(c -> implementors.add(preorder.get(c)));
+            hierarchy.getDirectSubinterfacesOf(current).forEach(i -> {
+                if (visited.add(i)) {
+                    queue.add(i);
+                }
+            });
+        }
+        // intervals of a tree are either nested or disjoint, thus after
+        // sorting, an interval is skipped if it is within a previous one
+        implementors.sort(Comparator.naturalOrder());
+        int next = 0;
+        for (int pre : implementors) {
+            if (pre >= next) {
+                subtypes.addAll(classes.subList(pre, last[pre] + 1));
+                next = last[pre] + 1;
+            }
+        }
+        return Collections.unmodifiableList(subtypes);
+    }
+}
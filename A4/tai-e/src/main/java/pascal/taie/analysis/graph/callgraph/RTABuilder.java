@@ -0,0 +1,256 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import pascal.taie.World;
+import pascal.taie.ir.exp.NewInstance;
+import pascal.taie.ir.exp.ReferenceLiteral;
+import pascal.taie.ir.proginfo.MethodRef;
+import pascal.taie.ir.stmt.AssignLiteral;
+import pascal.taie.ir.stmt.Invoke;
+import pascal.taie.ir.stmt.New;
+import pascal.taie.language.classes.ClassHierarchy;
+import pascal.taie.language.classes.ClassNames;
+import pascal.taie.language.classes.JClass;
+import pascal.taie.language.classes.JMethod;
+import pascal.taie.language.classes.Subsignature;
+import pascal.taie.language.type.ClassType;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.MultiMap;
+import pascal.taie.util.collection.Sets;
+import pascal.taie.util.collection.TwoKeyMap;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Implementation of the RTA (Rapid Type Analysis) algorithm.
+ * <p>
+ * RTA resolves virtual calls like CHA, except that the receiver objects
+ * are restricted to the classes instantiated by the reachable methods,
+ * i.e., the classes created by {@link New} statements, the classes of
+ * reference literals (e.g., strings and class objects), and the classes
+ * whose instances are created by the JVM (see {@link #JVM_CLASSES}).
+ * When a class becomes instantiated, the virtual calls which may be
+ * dispatched to it are re-resolved on it. Other objects which are not
+ * created by the program, e.g., by reflection or native code,
+ * are not considered.
+ */
+class RTABuilder implements CGBuilder<Invoke, JMethod> {
+
+    /**
+     * Classes whose instances may be created by the JVM without
+     * {@link New} statements: the {@code String[]} argument of main method
+     * (arrays inherit the methods of {@code Object}) and its elements,
+     * class objects, and the exceptions thrown by bytecode instructions.
+     */
+    private static final List<String> JVM_CLASSES = List.of(
+            ClassNames.OBJECT,
+            ClassNames.STRING,
+            ClassNames.CLASS,
+            ClassNames.ARITHMETIC_EXCEPTION,
+            ClassNames.ARRAY_INDEX_OUT_OF_BOUNDS_EXCEPTION,
+            ClassNames.ARRAY_STORE_EXCEPTION,
+            ClassNames.CLASS_CAST_EXCEPTION,
+            ClassNames.ILLEGAL_MONITOR_STATE_EXCEPTION,
+            ClassNames.NEGATIVE_ARRAY_SIZE_EXCEPTION,
+            ClassNames.NULL_POINTER_EXCEPTION
+    );
+
+    private HierarchyNumbering numbering;
+
+    private DefaultCallGraph callGraph;
+
+    private Queue<JMethod> workList;
+
+    private Set<JClass> instantiatedClasses;
+
+    /**
+     * Map from each class to the method references of virtual calls
+     * declared in the class.
+     */
+    private MultiMap<JClass, MethodRef> virtualRefs;
+
+    /**
+     * Map from each method reference to the virtual call sites of it.
+     */
+    private MultiMap<MethodRef, Invoke> virtualCallSites;
+
+    /**
+     * Map from each method reference to the targets of virtual calls
+     * of it, which are dispatched on the instantiated classes so far.
+     */
+    private MultiMap<MethodRef, JMethod> virtualTargets;
+
+    /**
+     * Caches the non-null results of {@link #dispatch(JClass, Subsignature)}.
+     */
+    private TwoKeyMap<JClass, Subsignature, JMethod> dispatchTable;
+
+    @Override
+    public CallGraph<Invoke, JMethod> build() {
+        ClassHierarchy hierarchy = World.get().getClassHierarchy();
+        numbering = new HierarchyNumbering(hierarchy);
+        callGraph = new DefaultCallGraph();
+        workList = new ArrayDeque<>();
+        instantiatedClasses = Sets.newSet();
+        virtualRefs = Maps.newMultiMap();
+        virtualCallSites = Maps.newMultiMap();
+        virtualTargets = Maps.newMultiMap();
+        dispatchTable = Maps.newTwoKeyMap();
+        for (String name : JVM_CLASSES) {
+            JClass jclass = hierarchy.getJREClass(name);
+            if (jclass != null) {
+                addInstantiatedClass(jclass);
+            }
+        }
+        JMethod entry = World.get().getMainMethod();
+        callGraph.addEntryMethod(entry);
+        workList.add(entry);
+        while (!workList.isEmpty()) {
+            JMethod method = workList.poll();
+            if (callGraph.addReachableMethod(method) && !method.isAbstract()) {
+                method.getIR().forEach(stmt -> {
+                    if (stmt instanceof New newStmt &&
+                            newStmt.getRValue() instanceof NewInstance newInstance) {
+                        JClass jclass = newInstance.getType().getJClass();
+                        if (jclass != null) {
+                            addInstantiatedClass(jclass);
+                        }
+                    } else if (stmt instanceof AssignLiteral assign &&
+                            assign.getRValue() instanceof ReferenceLiteral literal &&
+                            literal.getType() instanceof ClassType type &&
+                            type.getJClass() != null) {
+                        addInstantiatedClass(type.getJClass());
+                    } else if (stmt instanceof Invoke callSite) {
+                        processCallSite(callSite);
+                    }
+                });
+            }
+        }
+        return callGraph;
+    }
+
+    private void processCallSite(Invoke callSite) {
+        MethodRef methodRef = callSite.getMethodRef();
+        switch (CallGraphs.getCallKind(callSite)) {
+            case STATIC -> addEdge(callSite, methodRef.getDeclaringClass()
+                    .getDeclaredMethod(methodRef.getSubsignature()));
+            case SPECIAL -> addEdge(callSite, dispatch(
+                    methodRef.getDeclaringClass(), methodRef.getSubsignature()));
+            case VIRTUAL, INTERFACE -> {
+                if (!virtualCallSites.containsKey(methodRef)) {
+                    // resolve the method reference on the classes
+                    // which have been instantiated so far
+                    virtualRefs.put(methodRef.getDeclaringClass(), methodRef);
+                    for (JClass subtype : numbering.getSubtypesOf(
+                            methodRef.getDeclaringClass())) {
+                        if (instantiatedClasses.contains(subtype)) {
+                            JMethod target = dispatch(subtype, methodRef.getSubsignature());
+                            if (target != null) {
+                                virtualTargets.put(methodRef, target);
+                            }
+                        }
+                    }
+                }
+                virtualCallSites.put(methodRef, callSite);
+                virtualTargets.get(methodRef).forEach(target ->
+                        addEdge(callSite, target));
+            }
+            default -> {
+                // invokedynamic is not handled
+            }
+        }
+    }
+
+    /**
+     * Adds an instantiated class, and re-resolves the virtual calls
+     * whose method references are declared in the supertypes of the class.
+     */
+    private void addInstantiatedClass(JClass jclass) {
+        if (!instantiatedClasses.add(jclass)) {
+            return;
+        }
+        for (JClass supertype : getSupertypesOf(jclass)) {
+            for (MethodRef methodRef : virtualRefs.get(supertype)) {
+                JMethod target = dispatch(jclass, methodRef.getSubsignature());
+                if (target != null && virtualTargets.put(methodRef, target)) {
+                    virtualCallSites.get(methodRef).forEach(callSite ->
+                            addEdge(callSite, target));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return all supertypes of given class, including itself.
+     */
+    private static Set<JClass> getSupertypesOf(JClass jclass) {
+        Set<JClass> supertypes = Sets.newHybridSet();
+        Queue<JClass> queue = new ArrayDeque<>();
+        queue.add(jclass);
+        while (!queue.isEmpty()) {
+            JClass current = queue.poll();
+            if (supertypes.add(current)) {
+                if (current.getSuperClass() != null) {
+                    queue.add(current.getSuperClass());
+                }
+                queue.addAll(current.getInterfaces());
+            }
+        }
+        return supertypes;
+    }
+
+    private void addEdge(Invoke callSite, @Nullable JMethod callee) {
+        if (callee != null) {
+            callGraph.addEdge(new Edge<>(
+                    CallGraphs.getCallKind(callSite), callSite, callee));
+            workList.add(callee);
+        }
+    }
+
+    /**
+     * Looks up the target method based on given class and method subsignature.
+     *
+     * @return the dispatched target method, or null if no satisfying method
+     * can be found.
+     */
+    private @Nullable JMethod dispatch(JClass jclass, Subsignature subsignature) {
+        JMethod method = dispatchTable.get(jclass, subsignature);
+        if (method != null) {
+            return method;
+        }
+        method = jclass.getDeclaredMethod(subsignature);
+        if (method == null || method.isAbstract()) {
+            method = jclass.getSuperClass() == null ? null :
+                    dispatch(jclass.getSuperClass(), subsignature);
+        }
+        if (method != null) {
+            dispatchTable.put(jclass, subsignature, method);
+        }
+        return method;
+    }
+}
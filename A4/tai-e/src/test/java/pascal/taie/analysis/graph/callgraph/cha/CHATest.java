@@ -22,13 +22,29 @@
 
 package pascal.taie.analysis.graph.callgraph.cha;
 
+import org.junit.Assert;
 import org.junit.Test;
+import pascal.taie.World;
 import pascal.taie.analysis.Tests;
+import pascal.taie.analysis.graph.callgraph.CallGraphBuilder;
+import pascal.taie.analysis.graph.callgraph.CallGraphSnapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 
 public class CHATest {
+
+    private static final List<String> CASES = List.of(
+            "StaticCall", "VirtualCall", "Interface", "AbstractMethod");
     
     protected static void test(String main) {
-        Tests.test(main, "src/test/resources/cha/", "cg", "algorithm:cha");
+        test(main, "algorithm:cha");
+    }
+
+    private static void test(String main, String opts) {
+        Tests.test(main, "src/test/resources/cha/", "cg", opts);
     }
 
     @Test
@@ -50,4 +66,36 @@ public class CHATest {
     public void testAbstractMethod() {
         test("AbstractMethod");
     }
+
+    @Test
+    public void testParallel() {
+        CASES.forEach(main -> test(main, "algorithm:cha;parallelism:2"));
+    }
+
+    @Test
+    public void testCompact() {
+        CASES.forEach(main -> test(main, "algorithm:cha;compact:true"));
+    }
+
+    @Test
+    public void testSnapshot() throws IOException {
+        for (String main : CASES) {
+            Path snapshot = Files.createTempFile(main, ".cg");
+            // the snapshot does not exist at first, thus the first run builds
+            // the call graph and writes it, and the second run loads it
+            Files.delete(snapshot);
+            try {
+                String opts = "algorithm:cha;snapshot:" + snapshot;
+                test(main, opts);
+                Assert.assertFalse(World.get().getResult(CallGraphBuilder.ID)
+                        instanceof CallGraphSnapshot);
+                test(main, opts);
+                Assert.assertTrue("Snapshot of " + main + " is not loaded",
+                        World.get().getResult(CallGraphBuilder.ID)
+                                instanceof CallGraphSnapshot);
+            } finally {
+                Files.deleteIfExists(snapshot);
+            }
+        }
+    }
 }
@@ -0,0 +1,9 @@
+public class JVMObjects {
+
+    public static void main(String[] args) {
+        String s = "hello";
+        s.length();
+        Object o = args;
+        o.getClass();
+    }
+}
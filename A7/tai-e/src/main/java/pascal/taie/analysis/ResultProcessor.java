@@ -22,9 +22,11 @@
 
 package pascal.taie.analysis;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import pascal.taie.World;
+import pascal.taie.analysis.dataflow.solver.SolverMetrics;
 import pascal.taie.analysis.graph.callgraph.CallGraph;
 import pascal.taie.analysis.graph.callgraph.CallGraphBuilder;
 import pascal.taie.config.AnalysisConfig;
@@ -33,9 +35,8 @@ import pascal.taie.ir.IRPrinter;
 import pascal.taie.ir.stmt.Stmt;
 import pascal.taie.language.classes.JClass;
 import pascal.taie.language.classes.JMethod;
-import pascal.taie.util.collection.Maps;
-import pascal.taie.util.collection.MultiMap;
 import pascal.taie.util.collection.Pair;
+import pascal.taie.util.collection.Sets;
 
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
@@ -43,13 +44,19 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -61,6 +68,13 @@ import static pascal.taie.util.collection.CollectionUtils.getOne;
  * This class is designed mainly for testing purpose. Currently, it supports
  * input/output analysis results from/to file, and compare analysis results
  * with input results. This analysis should be placed after the other analyses.
+ * <p>
+ * Comparison streams the input file: the expected results are read
+ * method by method, and compared with the analysis results in parallel,
+ * so that only the expected results of a bounded number of methods are
+ * kept in memory. Mismatches are reported (and logged if option
+ * "log-mismatches" is enabled) in the order of the input file as soon
+ * as the preceding methods have been compared.
  */
 public class ResultProcessor extends ProgramAnalysis {
 
@@ -68,14 +82,22 @@ public class ResultProcessor extends ProgramAnalysis {
 
     private static final Logger logger = LogManager.getLogger(ResultProcessor.class);
 
+    /**
+     * Suffix of the file of solver metrics, which is appended to
+     * the path of the output file.
+     */
+    private static final String METRICS_SUFFIX = ".metrics.json";
+
+    private static final String METRICS_FILE = "solver-metrics.json";
+
     private final String action;
 
     private PrintStream out;
 
-    private MultiMap<Pair<String, String>, String> inputs;
-
     private Set<String> mismatches;
 
+    private boolean logMismatches;
+
     public ResultProcessor(AnalysisConfig config) {
         super(config);
         action = getOptions().getString("action");
@@ -84,11 +106,11 @@ public class ResultProcessor extends ProgramAnalysis {
     @Override
     public Object analyze() {
         // initialization
-        switch (action) {
-            case "dump" -> setOutput();
-            case "compare" -> readInputs();
+        if (action.equals("dump")) {
+            setOutput();
         }
         mismatches = new LinkedHashSet<>();
+        logMismatches = getOptions().getBoolean("log-mismatches");
         // Classify given analysis IDs into two groups, one for inter-procedural
         // and the another one for intra-procedural analysis.
         // If an ID has result in World, then it is classified as
@@ -103,8 +125,8 @@ public class ResultProcessor extends ProgramAnalysis {
         if (groups.containsKey(false)) {
             processIntraResults(groups.get(false));
         }
-        if (getOptions().getBoolean("log-mismatches")) {
-            mismatches.forEach(logger::info);
+        if (groups.containsKey(true)) {
+            exportMetrics(groups.get(true));
         }
         return mismatches;
     }
@@ -122,27 +144,6 @@ public class ResultProcessor extends ProgramAnalysis {
         }
     }
 
-    private void readInputs() {
-        String input = getOptions().getString("file");
-        Path path = Path.of(input);
-        try {
-            inputs = Maps.newMultiMap();
-            BufferedReader reader = Files.newBufferedReader(path);
-            String line;
-            Pair<String, String> currentKey = null;
-            while ((line = reader.readLine()) != null) {
-                Pair<String, String> key = extractKey(line);
-                if (key != null) {
-                    currentKey = key;
-                } else if (!line.isBlank()) {
-                    inputs.put(currentKey, line);
-                }
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to read input file", e);
-        }
-    }
-
     private static Pair<String, String> extractKey(String line) {
         if (line.startsWith("----------") && line.endsWith("----------")) {
             int ms = line.indexOf('<'); // method start
@@ -188,6 +189,41 @@ public class ResultProcessor extends ProgramAnalysis {
         processResults(methods, analyses, (m, id) -> World.get().getResult(id));
     }
 
+    /**
+     * Exports the solver metrics of given inter-procedural analyses
+     * (recorded when option "metrics" of the analyses is enabled) as JSON,
+     * which maps each analysis to the metrics of every method.
+     * The metrics are written next to the output file, or to
+     * {@link #METRICS_FILE} if there is no output file.
+     */
+    private void exportMetrics(List<String> analyses) {
+        Map<String, Map<String, SolverMetrics>> metrics = new TreeMap<>();
+        analyses.forEach(id -> {
+            Map<?, SolverMetrics> methodMetrics =
+                    World.get().getResult(SolverMetrics.getKey(id));
+            if (methodMetrics != null) {
+                Map<String, SolverMetrics> sorted = new TreeMap<>();
+                methodMetrics.forEach((m, solverMetrics) ->
+                        sorted.put(m.toString(), solverMetrics));
+                metrics.put(id, sorted);
+            }
+        });
+        if (metrics.isEmpty()) {
+            return;
+        }
+        String output = getOptions().getString("file");
+        Path path = action.equals("dump") && output != null ?
+                Path.of(output + METRICS_SUFFIX) : Path.of(METRICS_FILE);
+        try {
+            new ObjectMapper()
+                    .writerWithDefaultPrettyPrinter()
+                    .writeValue(path.toFile(), metrics);
+            logger.info("Solver metrics are written to {}", path);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write solver metrics", e);
+        }
+    }
+
     private void processIntraResults(List<String> analyses) {
         Stream<JMethod> methods = World.get()
                 .getClassHierarchy()
@@ -202,14 +238,11 @@ public class ResultProcessor extends ProgramAnalysis {
 
     private void processResults(Stream<JMethod> methods, List<String> analyses,
                                 BiFunction<JMethod, String, ?> resultGetter) {
-        methods.forEach(method ->
-                analyses.forEach(id -> {
-                    switch (action) {
-                        case "dump" -> dumpResult(method, id, resultGetter);
-                        case "compare" -> compareResult(method, id, resultGetter);
-                    }
-                })
-        );
+        switch (action) {
+            case "dump" -> methods.forEach(method ->
+                    analyses.forEach(id -> dumpResult(method, id, resultGetter)));
+            case "compare" -> compareResults(methods, analyses, resultGetter);
+        }
     }
 
     private void dumpResult(JMethod method, String id,
@@ -247,10 +280,97 @@ public class ResultProcessor extends ProgramAnalysis {
         return toString(stmt) + " " + toString(result.getResult(stmt));
     }
 
-    private void compareResult(JMethod method, String id,
-                               BiFunction<JMethod, String, ?> resultGetter) {
-        Set<String> inputResult = inputs.get(new Pair<>(method.toString(), id));
-        Object result = resultGetter.apply(method, id);
+    /**
+     * Compares the results of given methods and analyses with the expected
+     * results in the input file. Each section of the file, i.e., the expected
+     * result of a method and an analysis, is compared by an individual task,
+     * and at most {@link #getCompareWindow()} sections are pending at a time.
+     * The results which have no section in the file are compared with
+     * empty expected results after the file is read.
+     */
+    private void compareResults(Stream<JMethod> methods, List<String> analyses,
+                                BiFunction<JMethod, String, ?> resultGetter) {
+        Map<String, JMethod> methodMap = new LinkedHashMap<>();
+        methods.forEach(m -> methodMap.putIfAbsent(m.toString(), m));
+        Set<Pair<String, String>> compared = Sets.newSet();
+        Queue<ForkJoinTask<Set<String>>> pending = new ArrayDeque<>();
+        int window = getCompareWindow();
+        Path path = Path.of(getOptions().getString("file"));
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String header = reader.readLine();
+            while (header != null) {
+                Pair<String, String> key = extractKey(header);
+                Set<String> lines = new LinkedHashSet<>();
+                String line;
+                while ((line = reader.readLine()) != null && extractKey(line) == null) {
+                    if (!line.isBlank()) {
+                        lines.add(line);
+                    }
+                }
+                header = line;
+                JMethod method = key == null ? null : methodMap.get(key.first());
+                if (method != null && analyses.contains(key.second())
+                        && compared.add(key)) {
+                    pending.add(submitCompare(method, key.second(), lines, resultGetter));
+                    if (pending.size() > window) {
+                        report(pending.poll().join());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read input file", e);
+        }
+        methodMap.forEach((signature, method) -> analyses.forEach(id -> {
+            if (!compared.contains(new Pair<>(signature, id))) {
+                pending.add(submitCompare(method, id, Set.of(), resultGetter));
+                if (pending.size() > window) {
+                    report(pending.poll().join());
+                }
+            }
+        }));
+        pending.forEach(task -> report(task.join()));
+    }
+
+    /**
+     * @return the maximum number of pending sections during comparison.
+     */
+    private static int getCompareWindow() {
+        return 2 * ForkJoinPool.getCommonPoolParallelism();
+    }
+
+    private static ForkJoinTask<Set<String>> submitCompare(
+            JMethod method, String id, Set<String> inputResult,
+            BiFunction<JMethod, String, ?> resultGetter) {
+        return ForkJoinPool.commonPool().submit(() -> {
+            Set<String> found = new LinkedHashSet<>();
+            compareResult(method, id, inputResult,
+                    resultGetter.apply(method, id), found);
+            return found;
+        });
+    }
+
+    /**
+     * Adds mismatches to the result of this analysis, and logs them
+     * if option "log-mismatches" is enabled.
+     */
+    private void report(Set<String> found) {
+        found.forEach(this::report);
+    }
+
+    private void report(String mismatch) {
+        if (mismatches.add(mismatch) && logMismatches) {
+            logger.info(mismatch);
+        }
+    }
+
+    /**
+     * Compares a result with the expected result, and adds mismatches
+     * to given set. This method is called by parallel compare tasks,
+     * thus it only writes the given set.
+     */
+    private static void compareResult(JMethod method, String id,
+                                      Set<String> inputResult, Object result,
+                                      Set<String> mismatches) {
         if (result instanceof Set) {
             Set<String> given = ((Set<?>) result)
                     .stream()
@@ -269,18 +389,23 @@ public class ResultProcessor extends ProgramAnalysis {
                 }
             });
         } else if (result instanceof StmtResult<?> StmtResult) {
-            Set<String> lines = inputs.get(new Pair<>(method.toString(), id));
             // if the expected input does not contain the results
             // for the given method, just skip
-            if (lines.isEmpty()) {
+            if (inputResult.isEmpty()) {
                 return;
             }
+            // group expected lines by statement prefix, e.g., "[0@L1]",
+            // so that each statement is only checked against its lines
+            Map<String, List<String>> lines = inputResult.stream()
+                    .collect(Collectors.groupingBy(ResultProcessor::getStmtPrefix,
+                            LinkedHashMap::new, Collectors.toList()));
             IR ir = method.getIR();
             ir.forEach(stmt -> {
                 String stmtStr = toString(stmt);
                 String given = toString(stmt, StmtResult);
                 boolean foundExpeceted = false;
-                for (String line : lines) {
+                for (String line : lines.getOrDefault(
+                        getStmtPrefix(stmtStr), List.of())) {
                     if (line.startsWith(stmtStr)) {
                         foundExpeceted = true;
                         if (!line.equals(given)) {
@@ -308,4 +433,12 @@ public class ResultProcessor extends ProgramAnalysis {
                     id, method, inputResult, result);
         }
     }
+
+    /**
+     * @return the prefix of the string representation of a statement
+     * (given by {@link IRPrinter}), i.e., its index and line number.
+     */
+    private static String getStmtPrefix(String s) {
+        return s.substring(0, s.indexOf(']') + 1);
+    }
 }
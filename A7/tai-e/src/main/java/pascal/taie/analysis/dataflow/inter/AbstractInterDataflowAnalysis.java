@@ -25,6 +25,7 @@ package pascal.taie.analysis.dataflow.inter;
 import pascal.taie.World;
 import pascal.taie.analysis.ProgramAnalysis;
 import pascal.taie.analysis.dataflow.fact.DataflowResult;
+import pascal.taie.analysis.dataflow.solver.SolverMetrics;
 import pascal.taie.analysis.graph.icfg.CallEdge;
 import pascal.taie.analysis.graph.icfg.CallToReturnEdge;
 import pascal.taie.analysis.graph.icfg.ICFG;
@@ -33,6 +34,9 @@ import pascal.taie.analysis.graph.icfg.ICFGEdge;
 import pascal.taie.analysis.graph.icfg.NormalEdge;
 import pascal.taie.analysis.graph.icfg.ReturnEdge;
 import pascal.taie.config.AnalysisConfig;
+import pascal.taie.util.collection.Maps;
+
+import java.util.Map;
 
 /**
  * Provides common functionalities for {@link InterDataflowAnalysis} implementations.
@@ -121,7 +125,15 @@ public abstract class AbstractInterDataflowAnalysis<Method, Node, Fact>
     public Object analyze() {
         icfg = World.get().getResult(ICFGBuilder.ID);
         initialize();
-        solver = new InterSolver<>(this, icfg);
+        if (getOptions().getBooleanOrDefault("metrics", false)) {
+            // metrics of each method, exported by ResultProcessor
+            Map<Method, SolverMetrics> metrics = Maps.newMap();
+            World.get().storeResult(SolverMetrics.getKey(getId()), metrics);
+            solver = new InterSolver<>(
+                    new MeteredInterAnalysis<>(this, icfg, metrics), icfg);
+        } else {
+            solver = new InterSolver<>(this, icfg);
+        }
         DataflowResult<Node, Fact> result = solver.solve();
         finish();
         return result;
@@ -60,6 +60,9 @@ public class CallGraphBuilder extends ProgramAnalysis {
                     "Unknown call graph building algorithm: " + algorithm);
         };
         CallGraph<Invoke, JMethod> callGraph = builder.build();
+        if (getOptions().getBooleanOrDefault("compact", false)) {
+            callGraph = CompactCallGraph.of(callGraph);
+        }
         takeAction(callGraph);
         return callGraph;
     }
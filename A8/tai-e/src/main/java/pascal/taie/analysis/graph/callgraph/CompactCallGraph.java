@@ -0,0 +1,409 @@
+/*
+ * Tai-e: A Static Analysis Framework for Java
+ *
+ * Copyright (C) 2022 Tian Tan <tiantan@nju.edu.cn>
+ * Copyright (C) 2022 Yue Li <yueli@nju.edu.cn>
+ *
+ * This file is part of Tai-e.
+ *
+ * Tai-e is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License
+ * as published by the Free Software Foundation, either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * Tai-e is distributed in the hope that it will be useful,but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser General
+ * Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Tai-e. If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package pascal.taie.analysis.graph.callgraph;
+
+import pascal.taie.ir.stmt.Stmt;
+import pascal.taie.util.collection.Maps;
+import pascal.taie.util.collection.Sets;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * An immutable call graph in CSR (compressed sparse row) form.
+ * Methods and call sites are numbered densely, and call edges are stored
+ * in primitive arrays indexed by the numbers, which takes much less memory
+ * than the maps of {@link Edge}s in {@link AbstractCallGraph}.
+ * <p>
+ * A compact call graph is created via {@link #of(CallGraph)} from another
+ * call graph, e.g., {@link DefaultCallGraph} or CSCallGraph, after
+ * the latter has been built. The edges of the compact call graph are
+ * recreated from their kinds, call sites and callees when they are queried.
+ *
+ * @param <CallSite> type of call sites
+ * @param <Method>   type of methods
+ */
+public class CompactCallGraph<CallSite, Method>
+        implements CallGraph<CallSite, Method> {
+
+    private static final CallKind[] KINDS = CallKind.values();
+
+    /**
+     * Reachable methods, where the method numbered i is methods.get(i).
+     */
+    private final List<Method> methods;
+
+    private final Map<Method, Integer> methodIds;
+
+    private final int[] entries;
+
+    /**
+     * Call sites, where the call site numbered i is callSites.get(i).
+     */
+    private final List<CallSite> callSites;
+
+    private final Map<CallSite, Integer> callSiteIds;
+
+    /**
+     * The call sites in method i are numbered from callSiteStart[i]
+     * (inclusive) to callSiteStart[i + 1] (exclusive).
+     */
+    private final int[] callSiteStart;
+
+    /**
+     * Number of the method which contains each call site.
+     */
+    private final int[] containers;
+
+    /**
+     * The edges out of call site i are numbered from edgeStart[i]
+     * (inclusive) to edgeStart[i + 1] (exclusive).
+     */
+    private final int[] edgeStart;
+
+    /**
+     * Number of the call site of each edge.
+     */
+    private final int[] edgeCallSites;
+
+    /**
+     * Number of the callee of each edge.
+     */
+    private final int[] edgeCallees;
+
+    /**
+     * Ordinal of the {@link CallKind} of each edge.
+     */
+    private final byte[] edgeKinds;
+
+    /**
+     * The edges into method i are inEdges[inStart[i]] (inclusive)
+     * to inEdges[inStart[i + 1]] (exclusive).
+     */
+    private final int[] inStart;
+
+    private final int[] inEdges;
+
+    private CompactCallGraph(CallGraph<CallSite, Method> callGraph) {
+        // number methods and call sites
+        List<Method> methodList = new ArrayList<>(callGraph.getNumberOfMethods());
+        methodIds = Maps.newMap(callGraph.getNumberOfMethods());
+        callGraph.reachableMethods().forEach(m -> {
+            methodIds.put(m, methodList.size());
+            methodList.add(m);
+        });
+        methods = Collections.unmodifiableList(methodList);
+        entries = callGraph.entryMethods()
+                .mapToInt(this::getMethodId)
+                .toArray();
+        int nMethods = methods.size();
+        List<CallSite> callSiteList = new ArrayList<>();
+        callSiteIds = Maps.newMap();
+        callSiteStart = new int[nMethods + 1];
+        for (int m = 0; m < nMethods; ++m) {
+            callSiteStart[m] = callSiteList.size();
+            for (CallSite cs : callGraph.getCallSitesIn(methods.get(m))) {
+                callSiteIds.put(cs, callSiteList.size());
+                callSiteList.add(cs);
+            }
+        }
+        callSiteStart[nMethods] = callSiteList.size();
+        callSites = Collections.unmodifiableList(callSiteList);
+        int nCallSites = callSites.size();
+        containers = new int[nCallSites];
+        for (int m = 0; m < nMethods; ++m) {
+            Arrays.fill(containers, callSiteStart[m], callSiteStart[m + 1], m);
+        }
+        // store edges grouped by call sites
+        int nEdges = callGraph.getNumberOfEdges();
+        edgeStart = new int[nCallSites + 1];
+        edgeCallSites = new int[nEdges];
+        edgeCallees = new int[nEdges];
+        edgeKinds = new byte[nEdges];
+        int e = 0;
+        for (int cs = 0; cs < nCallSites; ++cs) {
+            edgeStart[cs] = e;
+            for (Iterator<Edge<CallSite, Method>> it =
+                 callGraph.edgesOutOf(callSites.get(cs)).iterator(); it.hasNext(); ++e) {
+                Edge<CallSite, Method> edge = it.next();
+                edgeCallSites[e] = cs;
+                edgeCallees[e] = getMethodId(edge.getCallee());
+                edgeKinds[e] = (byte) edge.getKind().ordinal();
+            }
+        }
+        edgeStart[nCallSites] = e;
+        if (e != nEdges) {
+            throw new IllegalArgumentException(
+                    "Call graph has edges out of unreachable methods");
+        }
+        // index edges by callees via counting sort
+        inStart = new int[nMethods + 1];
+        for (int callee : edgeCallees) {
+            ++inStart[callee + 1];
+        }
+        for (int m = 0; m < nMethods; ++m) {
+            inStart[m + 1] += inStart[m];
+        }
+        inEdges = new int[nEdges];
+        int[] next = Arrays.copyOf(inStart, nMethods);
+        for (int i = 0; i < nEdges; ++i) {
+            inEdges[next[edgeCallees[i]]++] = i;
+        }
+    }
+
+    /**
+     * Creates a compact call graph which contains the same methods
+     * and edges as the given call graph. All callees in the given call graph
+     * must be reachable methods.
+     */
+    public static <CallSite, Method> CompactCallGraph<CallSite, Method> of(
+            CallGraph<CallSite, Method> callGraph) {
+        return new CompactCallGraph<>(callGraph);
+    }
+
+    private int getMethodId(Method method) {
+        Integer id = methodIds.get(method);
+        if (id == null) {
+            throw new IllegalArgumentException(
+                    "Method " + method + " is not reachable");
+        }
+        return id;
+    }
+
+    private Edge<CallSite, Method> getEdge(int e) {
+        return new Edge<>(KINDS[edgeKinds[e]],
+                callSites.get(edgeCallSites[e]), methods.get(edgeCallees[e]));
+    }
+
+    private Set<Method> getCallees(int callSite) {
+        return toSet(IntStream.range(edgeStart[callSite], edgeStart[callSite + 1])
+                .mapToObj(e -> methods.get(edgeCallees[e])));
+    }
+
+    /**
+     * @return an unmodifiable set of the elements in given stream,
+     * which keeps the order of the elements.
+     */
+    private static <E> Set<E> toSet(Stream<E> stream) {
+        Set<E> set = Sets.newHybridOrderedSet();
+        stream.forEach(set::add);
+        return Collections.unmodifiableSet(set);
+    }
+
+    private IntStream edgesInTo(int method) {
+        return IntStream.range(inStart[method], inStart[method + 1])
+                .map(i -> inEdges[i]);
+    }
+
+    private IntStream edgesOutOfM(int method) {
+        return IntStream.range(edgeStart[callSiteStart[method]],
+                edgeStart[callSiteStart[method + 1]]);
+    }
+
+    @Override
+    public Set<CallSite> getCallersOf(Method callee) {
+        Integer id = methodIds.get(callee);
+        return id == null ? Set.of() : toSet(edgesInTo(id)
+                .mapToObj(e -> callSites.get(edgeCallSites[e])));
+    }
+
+    @Override
+    public Set<Method> getCalleesOf(CallSite callSite) {
+        Integer id = callSiteIds.get(callSite);
+        return id == null ? Set.of() : getCallees(id);
+    }
+
+    @Override
+    public Set<Method> getCalleesOfM(Method caller) {
+        return getSuccsOf(caller);
+    }
+
+    @Override
+    public Method getContainerOf(CallSite callSite) {
+        Integer id = callSiteIds.get(callSite);
+        return id == null ? null : methods.get(containers[id]);
+    }
+
+    @Override
+    public Set<CallSite> getCallSitesIn(Method method) {
+        Integer id = methodIds.get(method);
+        return id == null ? Set.of() : new RangeSet<>(callSites, callSiteIds,
+                callSiteStart[id], callSiteStart[id + 1]);
+    }
+
+    @Override
+    public Stream<Edge<CallSite, Method>> edgesOutOf(CallSite callSite) {
+        Integer id = callSiteIds.get(callSite);
+        return id == null ? Stream.of() :
+                IntStream.range(edgeStart[id], edgeStart[id + 1])
+                        .mapToObj(this::getEdge);
+    }
+
+    @Override
+    public Stream<Edge<CallSite, Method>> edgesInTo(Method method) {
+        Integer id = methodIds.get(method);
+        return id == null ? Stream.of() : edgesInTo(id).mapToObj(this::getEdge);
+    }
+
+    @Override
+    public Stream<Edge<CallSite, Method>> edges() {
+        return IntStream.range(0, edgeCallees.length).mapToObj(this::getEdge);
+    }
+
+    @Override
+    public int getNumberOfEdges() {
+        return edgeCallees.length;
+    }
+
+    @Override
+    public Stream<Method> entryMethods() {
+        return Arrays.stream(entries).mapToObj(methods::get);
+    }
+
+    @Override
+    public Stream<Method> reachableMethods() {
+        return methods.stream();
+    }
+
+    @Override
+    public int getNumberOfMethods() {
+        return methods.size();
+    }
+
+    @Override
+    public boolean contains(Method method) {
+        return methodIds.containsKey(method);
+    }
+
+    // Implementation for Graph interface.
+
+    @Override
+    public boolean hasNode(Method node) {
+        return contains(node);
+    }
+
+    @Override
+    public boolean hasEdge(Method source, Method target) {
+        Integer s = methodIds.get(source), t = methodIds.get(target);
+        return s != null && t != null &&
+                edgesOutOfM(s).anyMatch(e -> edgeCallees[e] == t);
+    }
+
+    @Override
+    public Set<MethodEdge<CallSite, Method>> getInEdgesOf(Method method) {
+        Integer id = methodIds.get(method);
+        return id == null ? Set.of() : toSet(edgesInTo(id)
+                .mapToObj(e -> new MethodEdge<>(methods.get(containers[edgeCallSites[e]]),
+                        method, callSites.get(edgeCallSites[e]))));
+    }
+
+    @Override
+    public Set<MethodEdge<CallSite, Method>> getOutEdgesOf(Method method) {
+        Integer id = methodIds.get(method);
+        return id == null ? Set.of() : toSet(edgesOutOfM(id)
+                .mapToObj(e -> new MethodEdge<>(method,
+                        methods.get(edgeCallees[e]), callSites.get(edgeCallSites[e]))));
+    }
+
+    @Override
+    public Set<Method> getPredsOf(Method node) {
+        Integer id = methodIds.get(node);
+        return id == null ? Set.of() : toSet(edgesInTo(id)
+                .mapToObj(e -> methods.get(containers[edgeCallSites[e]])));
+    }
+
+    @Override
+    public Set<Method> getSuccsOf(Method node) {
+        Integer id = methodIds.get(node);
+        return id == null ? Set.of() : toSet(edgesOutOfM(id)
+                .mapToObj(e -> methods.get(edgeCallees[e])));
+    }
+
+    @Override
+    public Set<Method> getNodes() {
+        return new RangeSet<>(methods, methodIds, 0, methods.size());
+    }
+
+    // Implementation for StmtResult interface.
+
+    /**
+     * Different from {@link DefaultCallGraph}, only the call sites
+     * in reachable methods are relevant.
+     */
+    @Override
+    public boolean isRelevant(Stmt stmt) {
+        return callSiteIds.containsKey(stmt);
+    }
+
+    @Override
+    public Set<Method> getResult(Stmt stmt) {
+        Integer id = callSiteIds.get(stmt);
+        return id == null ? Set.of() : getCallees(id);
+    }
+
+    /**
+     * Unmodifiable set view of the elements numbered from {@code from}
+     * (inclusive) to {@code to} (exclusive).
+     */
+    private static class RangeSet<E> extends AbstractSet<E> {
+
+        private final List<E> elements;
+
+        private final Map<E, Integer> ids;
+
+        private final int from;
+
+        private final int to;
+
+        private RangeSet(List<E> elements, Map<E, Integer> ids, int from, int to) {
+            this.elements = elements;
+            this.ids = ids;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            Integer id = ids.get(o);
+            return id != null && from <= id && id < to;
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return elements.subList(from, to).iterator();
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+}